@@ -0,0 +1,71 @@
+package com.bestpractices.base.collection;
+
+public class ByteArrayListTest extends PrimitiveArrayListTestCase<ByteArrayList> {
+    @Override
+    protected ByteArrayList newList(int capacity) {
+        return new ByteArrayList(capacity);
+    }
+
+    @Override
+    protected ByteArrayList copy(ByteArrayList list) {
+        return new ByteArrayList(list);
+    }
+
+    @Override
+    protected void add(ByteArrayList list, int value) {
+        list.add((byte) value);
+    }
+
+    @Override
+    protected double get(ByteArrayList list, int index) {
+        return list.get(index);
+    }
+
+    @Override
+    protected int size(ByteArrayList list) {
+        return list.size();
+    }
+
+    @Override
+    protected void offset(ByteArrayList list, int index, int valueChange) {
+        list.offset(index, (byte) valueChange);
+    }
+
+    @Override
+    protected int removeAt(ByteArrayList list, int index) {
+        return (int) list.removeAt(index);
+    }
+
+    @Override
+    protected int binarySearch(ByteArrayList list, int value) {
+        return list.binarySearch((byte) value);
+    }
+
+    @Override
+    protected int binaryInsertSearch(ByteArrayList list, int value) {
+        return list.binaryInsertSearch((byte) value);
+    }
+
+    @Override
+    protected boolean binaryContains(ByteArrayList list, int value) {
+        return list.binaryContains((byte) value);
+    }
+
+    @Override
+    protected int binaryAdd(ByteArrayList list, int value) {
+        return list.binaryAdd((byte) value);
+    }
+
+    @Override
+    protected void binaryRemove(ByteArrayList list, int value) {
+        list.binaryRemove((byte) value);
+    }
+
+    public void testOffsetNarrows() {
+        ByteArrayList list = new ByteArrayList();
+        list.add(Byte.MAX_VALUE);
+        // narrowed back to byte, wrapping around like byte arithmetic
+        list.offset(0, (byte) 1);
+        assertEquals(Byte.MIN_VALUE, list.get(0));
+    }
+}
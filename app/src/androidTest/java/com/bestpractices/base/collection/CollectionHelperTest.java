@@ -0,0 +1,97 @@
+package com.bestpractices.base.collection;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The in-place move, rotate and removeRange against plain copying ones.
+ */
+public class CollectionHelperTest extends TestCase {
+    private final Random mRandom = new Random(47);
+
+    private static ArrayList<Integer> range(int size) {
+        ArrayList<Integer> list = new ArrayList<Integer>(size);
+        for (int i = 0; i < size; ++i) {
+            list.add(i);
+        }
+        return list;
+    }
+
+    /**
+     * Move by copying, toStartIndex is based on the status before move.
+     */
+    static <E> void moveByCopy(List<E> list, int fromStartIndex, int fromEndIndex, int toStartIndex) {
+        if (toStartIndex >= fromStartIndex && toStartIndex <= fromEndIndex + 1) {
+            return;
+        }
+        List<E> range = list.subList(fromStartIndex, fromEndIndex + 1);
+        ArrayList<E> moved = new ArrayList<E>(range);
+        range.clear();
+        if (toStartIndex > fromEndIndex) {
+            toStartIndex -= moved.size();
+        }
+        list.addAll(toStartIndex, moved);
+    }
+
+    public void testMove() {
+        ArrayList<Integer> list = range(4);
+        CollectionHelper.move(list, 0, 1, 3);
+        assertEquals(CollectionHelper.arrayList(2, 0, 1, 3), list);
+
+        // inside or right after itself
+        CollectionHelper.move(list, 1, 2, 2);
+        CollectionHelper.move(list, 1, 2, 3);
+        assertEquals(CollectionHelper.arrayList(2, 0, 1, 3), list);
+    }
+
+    public void testRandomMoveRotate() {
+        for (int round = 0; round < 2000; ++round) {
+            int size = 1 + mRandom.nextInt(20);
+            ArrayList<Integer> list = range(size);
+            ArrayList<Integer> expected = range(size);
+            IntArrayList ints = new IntArrayList();
+            for (int i = 0; i < size; ++i) {
+                ints.add(i);
+            }
+
+            int from = mRandom.nextInt(size);
+            int to = from + mRandom.nextInt(size - from);
+            if (mRandom.nextBoolean()) {
+                int target = mRandom.nextInt(size + 1);
+                CollectionHelper.move(list, from, to, target);
+                ints.move(from, to, target);
+                moveByCopy(expected, from, to, target);
+            } else {
+                int distance = mRandom.nextInt(3 * size) - size - size / 2;
+                CollectionHelper.rotate(list, from, to + 1, distance);
+                ints.rotate(from, to + 1, distance);
+                Collections.rotate(expected.subList(from, to + 1), distance);
+            }
+
+            assertEquals(expected, list);
+            for (int i = 0; i < size; ++i) {
+                assertEquals(expected.get(i).intValue(), ints.get(i));
+            }
+        }
+    }
+
+    public void testRemoveRange() {
+        for (int round = 0; round < 200; ++round) {
+            int size = mRandom.nextInt(20);
+            ArrayList<Integer> list = range(size);
+            ArrayList<Integer> expected = range(size);
+            int from = mRandom.nextInt(size + 1);
+            int to = from + mRandom.nextInt(size - from + 1);
+
+            CollectionHelper.removeRange(list, from, to);
+            for (int i = to - 1; i >= from; --i) {
+                expected.remove(i);
+            }
+            assertEquals(expected, list);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.bestpractices.base.collection;
+
+public class DoubleArrayListTest extends PrimitiveArrayListTestCase<DoubleArrayList> {
+    @Override
+    protected DoubleArrayList newList(int capacity) {
+        return new DoubleArrayList(capacity);
+    }
+
+    @Override
+    protected DoubleArrayList copy(DoubleArrayList list) {
+        return new DoubleArrayList(list);
+    }
+
+    @Override
+    protected void add(DoubleArrayList list, int value) {
+        list.add(value);
+    }
+
+    @Override
+    protected double get(DoubleArrayList list, int index) {
+        return list.get(index);
+    }
+
+    @Override
+    protected int size(DoubleArrayList list) {
+        return list.size();
+    }
+
+    @Override
+    protected void offset(DoubleArrayList list, int index, int valueChange) {
+        list.offset(index, valueChange);
+    }
+
+    @Override
+    protected int removeAt(DoubleArrayList list, int index) {
+        return (int) list.removeAt(index);
+    }
+
+    @Override
+    protected int binarySearch(DoubleArrayList list, int value) {
+        return list.binarySearch(value);
+    }
+
+    @Override
+    protected int binaryInsertSearch(DoubleArrayList list, int value) {
+        return list.binaryInsertSearch(value);
+    }
+
+    @Override
+    protected boolean binaryContains(DoubleArrayList list, int value) {
+        return list.binaryContains(value);
+    }
+
+    @Override
+    protected int binaryAdd(DoubleArrayList list, int value) {
+        return list.binaryAdd(value);
+    }
+
+    @Override
+    protected void binaryRemove(DoubleArrayList list, int value) {
+        list.binaryRemove(value);
+    }
+
+    public void testOffsetFraction() {
+        DoubleArrayList list = new DoubleArrayList();
+        list.add(1.5);
+        list.offset(0, -0.5);
+        assertEquals(1, list.get(0), 0);
+    }
+
+    public void testBinarySearchSignedZero() {
+        DoubleArrayList list = new DoubleArrayList();
+        list.add(-0.0).add(0.0);
+        // ordered like Double.compare, -0.0 before 0.0
+        assertEquals(0, list.binarySearch(-0.0));
+        assertEquals(1, list.binarySearch(0.0));
+    }
+}
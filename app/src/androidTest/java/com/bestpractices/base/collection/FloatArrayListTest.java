@@ -0,0 +1,78 @@
+package com.bestpractices.base.collection;
+
+public class FloatArrayListTest extends PrimitiveArrayListTestCase<FloatArrayList> {
+    @Override
+    protected FloatArrayList newList(int capacity) {
+        return new FloatArrayList(capacity);
+    }
+
+    @Override
+    protected FloatArrayList copy(FloatArrayList list) {
+        return new FloatArrayList(list);
+    }
+
+    @Override
+    protected void add(FloatArrayList list, int value) {
+        list.add(value);
+    }
+
+    @Override
+    protected double get(FloatArrayList list, int index) {
+        return list.get(index);
+    }
+
+    @Override
+    protected int size(FloatArrayList list) {
+        return list.size();
+    }
+
+    @Override
+    protected void offset(FloatArrayList list, int index, int valueChange) {
+        list.offset(index, valueChange);
+    }
+
+    @Override
+    protected int removeAt(FloatArrayList list, int index) {
+        return (int) list.removeAt(index);
+    }
+
+    @Override
+    protected int binarySearch(FloatArrayList list, int value) {
+        return list.binarySearch(value);
+    }
+
+    @Override
+    protected int binaryInsertSearch(FloatArrayList list, int value) {
+        return list.binaryInsertSearch(value);
+    }
+
+    @Override
+    protected boolean binaryContains(FloatArrayList list, int value) {
+        return list.binaryContains(value);
+    }
+
+    @Override
+    protected int binaryAdd(FloatArrayList list, int value) {
+        return list.binaryAdd(value);
+    }
+
+    @Override
+    protected void binaryRemove(FloatArrayList list, int value) {
+        list.binaryRemove(value);
+    }
+
+    public void testOffsetFraction() {
+        FloatArrayList list = new FloatArrayList();
+        list.add(1.5f);
+        list.offset(0, -0.5f);
+        assertEquals(1f, list.get(0), 0f);
+    }
+
+    public void testBinarySearchSignedZero() {
+        FloatArrayList list = new FloatArrayList();
+        list.add(-0.0f).add(0.0f);
+        // ordered like Float.compare, -0.0 before 0.0
+        assertEquals(0, list.binarySearch(-0.0f));
+        assertEquals(1, list.binarySearch(0.0f));
+    }
+}
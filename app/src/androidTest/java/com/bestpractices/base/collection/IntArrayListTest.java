@@ -0,0 +1,67 @@
+package com.bestpractices.base.collection;
+
+import junit.framework.TestCase;
+
+public class IntArrayListTest extends TestCase {
+    private static IntArrayList listOf(int... values) {
+        IntArrayList list = new IntArrayList(values.length);
+        for (int value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+
+    private static void assertList(IntArrayList list, int... expected) {
+        assertEquals(expected.length, list.size());
+        for (int i = 0; i < expected.length; ++i) {
+            assertEquals(expected[i], list.get(i));
+        }
+    }
+
+    public void testCopy() {
+        IntArrayList copy = new IntArrayList(listOf(1, 2, 3));
+        assertList(copy, 1, 2, 3);
+    }
+
+    public void testInsertAllRejectsBadRange() {
+        int[] values = {7, 8, 9};
+
+        // 1) shifting in place
+        IntArrayList list = new IntArrayList(16);
+        list.addAll(new int[]{1, 2, 3});
+        assertInsertAllFails(list, values, 2, 2);
+        assertInsertAllFails(list, values, -1, 1);
+        assertInsertAllFails(list, values, 0, -1);
+        assertList(list, 1, 2, 3);
+
+        // 2) growing, the list is exactly full
+        list = listOf(1, 2, 3);
+        assertInsertAllFails(list, values, 1, 3);
+        assertList(list, 1, 2, 3);
+
+        list.insertAll(1, values, 1, 2);
+        assertList(list, 1, 8, 9, 2, 3);
+    }
+
+    private static void assertInsertAllFails(IntArrayList list, int[] values, int offset, int length) {
+        try {
+            list.insertAll(1, values, offset, length);
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+        }
+    }
+
+    public void testKWayMergeFullCapacityInputs() {
+        // exactly full, so reading past the last element is out of bounds
+        IntArrayList a = new IntArrayList(1);
+        a.add(2);
+        IntArrayList b = new IntArrayList(1);
+        b.add(1);
+        IntArrayList out = new IntArrayList();
+        IntArrayList.kWayMerge(new IntArrayList[]{a, b}, out);
+        assertList(out, 1, 2);
+
+        IntArrayList.kWayMerge(new IntArrayList[]{listOf(1, 4, 7), listOf(2, 5), listOf(), listOf(3, 3, 9)}, out);
+        assertList(out, 1, 2, 3, 3, 4, 5, 7, 9);
+    }
+}
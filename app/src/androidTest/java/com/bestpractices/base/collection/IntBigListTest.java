@@ -0,0 +1,32 @@
+package com.bestpractices.base.collection;
+
+import junit.framework.TestCase;
+
+public class IntBigListTest extends TestCase {
+    public void testAddAllAcrossPages() {
+        IntArrayList source = new IntArrayList();
+        for (int i = 0; i < 10000; ++i) {
+            source.add(i);
+        }
+
+        IntBigList list = new IntBigList();
+        list.add(-1);
+        list.addAll(source);
+        list.addAll(source);
+        assertEquals(20001, list.size());
+        assertEquals(-1, list.get(0));
+        assertEquals(9999, list.get(10000));
+        assertEquals(0, list.get(10001));
+        assertEquals(9999, list.get(20000));
+    }
+
+    public void testAddAllRejectsBadRange() {
+        IntBigList list = new IntBigList();
+        try {
+            list.addAll(new int[3], 2, 2);
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+        }
+        assertEquals(0, list.size());
+    }
+}
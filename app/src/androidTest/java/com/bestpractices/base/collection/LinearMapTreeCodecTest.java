@@ -0,0 +1,118 @@
+package com.bestpractices.base.collection;
+
+import junit.framework.TestCase;
+
+import java.nio.ByteBuffer;
+
+public class LinearMapTreeCodecTest extends TestCase {
+    static class Node extends LinearMapTree<Node> {
+        final String mName;
+
+        Node(String name) {
+            mName = name;
+        }
+
+        @Override
+        public String toString() {
+            return mName;
+        }
+    }
+
+    private final LinearMapTreeCodec<Node> mCodec = new LinearMapTreeCodec<Node>(new LinearMapTreeCodec.NodeCodec<Node>() {
+        @Override
+        public void write(Node node, LinearMapTreeCodec.Output out) {
+            out.writeString(node.mName);
+        }
+
+        @Override
+        public Node read(ByteBuffer in) {
+            return new Node(LinearMapTreeCodec.readString(in));
+        }
+    });
+
+    /**
+     * r: a, x (folded): [x1, x2 (folded): [x21]], b
+     */
+    private static Node buildTree() {
+        Node root = new Node("r");
+        Node x = new Node("x");
+        Node x2 = new Node("x2");
+        x2.add(new Node("x21"));
+        x.add(new Node("x1"));
+        x.add(x2);
+        root.add(new Node("a"));
+        root.add(x);
+        root.add(new Node("b"));
+        x2.fold(true);
+        x.fold(true);
+        return root;
+    }
+
+    private static String dump(Node root) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < root.size(); ++i) {
+            sb.append(root.get(i)).append(',');
+        }
+        return sb.toString();
+    }
+
+    private static void unfoldAll(Node node) {
+        for (int i = 0; i < node.childCount(); ++i) {
+            Node child = node.mChildren.get(i);
+            child.fold(false);
+            unfoldAll(child);
+        }
+    }
+
+    public void testReadRoundTrip() {
+        byte[] bytes = mCodec.encode(buildTree()).toByteArray();
+
+        Node root = mCodec.read(ByteBuffer.wrap(bytes));
+        assertEquals("a,x,b,", dump(root));
+        unfoldAll(root);
+        assertEquals("a,x,x1,x2,x21,b,", dump(root));
+    }
+
+    public void testReadLazyWriteRead() {
+        byte[] bytes = mCodec.encode(buildTree()).toByteArray();
+
+        // 1) nothing expanded
+        Node lazy = mCodec.readLazy(ByteBuffer.wrap(bytes));
+        assertEquals(LinearMapTree.LAZY_STATE_UNLOADED, lazy.get(1).lazyState());
+        byte[] rewritten = mCodec.encode(lazy).toByteArray();
+        assertEquals(bytes.length, rewritten.length);
+
+        Node root = mCodec.read(ByteBuffer.wrap(rewritten));
+        assertEquals("a,x,b,", dump(root));
+        unfoldAll(root);
+        assertEquals("a,x,x1,x2,x21,b,", dump(root));
+
+        // 2) partially expanded, x2 stays unloaded
+        lazy = mCodec.readLazy(ByteBuffer.wrap(bytes));
+        lazy.get(1).fold(false);
+        assertEquals(LinearMapTree.LAZY_STATE_UNLOADED, lazy.get(3).lazyState());
+        rewritten = mCodec.encode(lazy).toByteArray();
+
+        root = mCodec.read(ByteBuffer.wrap(rewritten));
+        assertEquals("a,x,x1,x2,b,", dump(root));
+        unfoldAll(root);
+        assertEquals("a,x,x1,x2,x21,b,", dump(root));
+    }
+
+    public void testWriteForeignUnloadedNodeFails() {
+        Node root = new Node("r");
+        Node lazy = new Node("lazy");
+        root.add(lazy);
+        lazy.setLazy(new LinearMapTree.ChildrenLoader<Node>() {
+            @Override
+            public void load(Node node) {
+            }
+        }, 1);
+
+        try {
+            mCodec.encode(root);
+            fail();
+        } catch (IllegalStateException e) {
+        }
+    }
+}
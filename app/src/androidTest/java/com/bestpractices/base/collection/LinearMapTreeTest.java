@@ -0,0 +1,129 @@
+package com.bestpractices.base.collection;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Positions of a tree after moves, against a preorder walk of its children.
+ */
+public class LinearMapTreeTest extends TestCase {
+    static class Node extends LinearMapTree<Node> {
+        final int mId;
+
+        Node(int id) {
+            mId = id;
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(mId);
+        }
+    }
+
+    private final Random mRandom = new Random(47);
+
+    private static void preorder(Node node, ArrayList<Node> out) {
+        if (node.isFolded()) {
+            return;
+        }
+        for (int i = 0; i < node.childCount(); ++i) {
+            Node child = node.mChildren.get(i);
+            out.add(child);
+            preorder(child, out);
+        }
+    }
+
+    private static void assertPositions(Node root) {
+        ArrayList<Node> expected = new ArrayList<Node>();
+        preorder(root, expected);
+        assertEquals(expected.size(), root.size());
+        for (int i = 0; i < expected.size(); ++i) {
+            assertSame("position " + i, expected.get(i), root.get(i));
+            assertEquals(i, root.positionOf(expected.get(i)));
+        }
+    }
+
+    private static Node flat(int count) {
+        Node root = new Node(-1);
+        for (int i = 0; i < count; ++i) {
+            root.add(new Node(i));
+        }
+        return root;
+    }
+
+    public void testMoveInsideOrRightAfterItself() {
+        Node root = flat(6);
+        root.move(root, 1, 3, root, 3);
+        root.move(root, 1, 3, root, 4);
+        root.move(root, 1, 3, root, 1);
+        for (int i = 0; i < 6; ++i) {
+            assertEquals(i, root.get(i).mId);
+        }
+        assertPositions(root);
+    }
+
+    public void testMoveWithinParent() {
+        Node root = flat(4);
+        root.move(root, 0, 1, root, 3);
+        assertEquals("2,0,1,3", root.get(0) + "," + root.get(1) + "," + root.get(2) + "," + root.get(3));
+        assertPositions(root);
+    }
+
+    private static boolean isInside(Node node, Node ancestor) {
+        for (Node curr = node; curr != null; curr = curr.mParent) {
+            if (curr == ancestor) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void testRandomMoves() {
+        // 1) a tree of three levels
+        Node root = new Node(-1);
+        ArrayList<Node> nodes = new ArrayList<Node>();
+        nodes.add(root);
+        for (int id = 0; id < 60; ++id) {
+            Node parent = nodes.get(mRandom.nextInt(nodes.size()));
+            Node node = new Node(id);
+            parent.add(node);
+            nodes.add(node);
+        }
+        assertPositions(root);
+
+        // 2) random moves, within and across parents
+        for (int round = 0; round < 500; ++round) {
+            Node fromParent = nodes.get(mRandom.nextInt(nodes.size()));
+            int count = fromParent.childCount();
+            if (count == 0) {
+                continue;
+            }
+            int from = mRandom.nextInt(count);
+            int to = from + mRandom.nextInt(Math.min(3, count - from));
+
+            // a leaf has no children list to move into
+            Node toParent = mRandom.nextInt(3) == 0 ? fromParent : nodes.get(mRandom.nextInt(nodes.size()));
+            boolean valid = toParent.mChildren != null;
+            for (int i = from; i <= to; ++i) {
+                valid &= !isInside(toParent, fromParent.mChildren.get(i));
+            }
+            if (!valid) {
+                continue;
+            }
+            int target = mRandom.nextInt(toParent.childCount() + 1);
+
+            ArrayList<Node> expected = null;
+            if (toParent == fromParent) {
+                expected = new ArrayList<Node>(fromParent.mChildren);
+                CollectionHelperTest.moveByCopy(expected, from, to, target);
+            }
+            root.move(fromParent, from, to, toParent, target);
+            if (expected != null) {
+                assertEquals(expected, fromParent.mChildren);
+            }
+            assertPositions(root);
+        }
+    }
+}
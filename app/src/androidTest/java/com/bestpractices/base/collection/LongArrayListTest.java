@@ -0,0 +1,70 @@
+package com.bestpractices.base.collection;
+
+public class LongArrayListTest extends PrimitiveArrayListTestCase<LongArrayList> {
+    @Override
+    protected LongArrayList newList(int capacity) {
+        return new LongArrayList(capacity);
+    }
+
+    @Override
+    protected LongArrayList copy(LongArrayList list) {
+        return new LongArrayList(list);
+    }
+
+    @Override
+    protected void add(LongArrayList list, int value) {
+        list.add(value);
+    }
+
+    @Override
+    protected double get(LongArrayList list, int index) {
+        return list.get(index);
+    }
+
+    @Override
+    protected int size(LongArrayList list) {
+        return list.size();
+    }
+
+    @Override
+    protected void offset(LongArrayList list, int index, int valueChange) {
+        list.offset(index, valueChange);
+    }
+
+    @Override
+    protected int removeAt(LongArrayList list, int index) {
+        return (int) list.removeAt(index);
+    }
+
+    @Override
+    protected int binarySearch(LongArrayList list, int value) {
+        return list.binarySearch(value);
+    }
+
+    @Override
+    protected int binaryInsertSearch(LongArrayList list, int value) {
+        return list.binaryInsertSearch(value);
+    }
+
+    @Override
+    protected boolean binaryContains(LongArrayList list, int value) {
+        return list.binaryContains(value);
+    }
+
+    @Override
+    protected int binaryAdd(LongArrayList list, int value) {
+        return list.binaryAdd(value);
+    }
+
+    @Override
+    protected void binaryRemove(LongArrayList list, int value) {
+        list.binaryRemove(value);
+    }
+
+    public void testOffsetWraps() {
+        LongArrayList list = new LongArrayList();
+        list.add(Long.MAX_VALUE);
+        list.offset(0, 1L);
+        assertEquals(Long.MIN_VALUE, list.get(0));
+    }
+}
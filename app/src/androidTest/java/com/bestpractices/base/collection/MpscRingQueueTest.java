@@ -0,0 +1,114 @@
+package com.bestpractices.base.collection;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+
+/**
+ * Several producers against one consumer: no element is lost or duplicated,
+ * and the elements of each producer come out in its offer order.
+ */
+public class MpscRingQueueTest extends TestCase {
+    private static final int PRODUCERS = 4;
+    private static final int COUNT_PER_PRODUCER = 50000;
+
+    public void testSingleThread() {
+        MpscRingQueue<Integer> queue = new MpscRingQueue<Integer>(2);
+        assertTrue(queue.offer(1));
+        assertTrue(queue.offer(2));
+        assertFalse(queue.offer(3));
+        assertEquals(2, queue.size());
+        assertEquals(Integer.valueOf(1), queue.poll());
+        assertEquals(Integer.valueOf(2), queue.poll());
+        assertNull(queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    public void testDrainThrowingConsumer() {
+        MpscRingQueue<Integer> queue = new MpscRingQueue<Integer>(4);
+        for (int i = 0; i < 4; ++i) {
+            assertTrue(queue.offer(i));
+        }
+        try {
+            queue.drain(new SpscRingQueue.Consumer<Integer>() {
+                @Override
+                public void accept(Integer e) {
+                    if (e == 1) {
+                        throw new IllegalStateException();
+                    }
+                }
+            }, 10);
+            fail();
+        } catch (IllegalStateException e) {
+        }
+
+        // 0 and 1 were handed out, their slots are free again
+        assertEquals(2, queue.size());
+        assertEquals(Integer.valueOf(2), queue.poll());
+        assertEquals(Integer.valueOf(3), queue.poll());
+        assertNull(queue.poll());
+        for (int i = 0; i < 4; ++i) {
+            assertTrue(queue.offer(i));
+        }
+        assertFalse(queue.offer(4));
+    }
+
+    public void testProducersConsumerOrder() throws Exception {
+        final MpscRingQueue<int[]> queue = new MpscRingQueue<int[]>(64);
+        Thread[] producers = new Thread[PRODUCERS];
+        for (int p = 0; p < PRODUCERS; ++p) {
+            final int id = p;
+            producers[p] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < COUNT_PER_PRODUCER; ) {
+                        if (queue.offer(new int[]{id, i})) {
+                            ++i;
+                        } else {
+                            Thread.yield();
+                        }
+                    }
+                }
+            };
+            producers[p].start();
+        }
+
+        final int[] last = new int[PRODUCERS];
+        Arrays.fill(last, -1);
+        final int[] count = {0};
+        final boolean[] outOfOrder = {false};
+        SpscRingQueue.Consumer<int[]> consumer = new SpscRingQueue.Consumer<int[]>() {
+            @Override
+            public void accept(int[] e) {
+                if (e[1] != last[e[0]] + 1) {
+                    outOfOrder[0] = true;
+                }
+                last[e[0]] = e[1];
+                ++count[0];
+            }
+        };
+        final int total = PRODUCERS * COUNT_PER_PRODUCER;
+        while (count[0] < total && !outOfOrder[0]) {
+            if ((count[0] & 1) == 0) {
+                int[] e = queue.poll();
+                if (e == null) {
+                    Thread.yield();
+                } else {
+                    consumer.accept(e);
+                }
+            } else if (queue.drain(consumer, 10) == 0) {
+                Thread.yield();
+            }
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        assertFalse(outOfOrder[0]);
+        assertEquals(total, count[0]);
+        for (int p = 0; p < PRODUCERS; ++p) {
+            assertEquals(COUNT_PER_PRODUCER - 1, last[p]);
+        }
+        assertTrue(queue.isEmpty());
+    }
+}
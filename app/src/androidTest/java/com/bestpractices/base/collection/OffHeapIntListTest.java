@@ -0,0 +1,64 @@
+package com.bestpractices.base.collection;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+
+public class OffHeapIntListTest extends TestCase {
+    private static final int COUNT = 1500000;
+
+    private File mFile;
+
+    @Override
+    protected void setUp() throws Exception {
+        mFile = File.createTempFile("offheap", ".bin");
+        mFile.delete();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mFile.delete();
+    }
+
+    public void testFileBackedGrowsByFewMappings() throws Exception {
+        OffHeapIntList list = OffHeapIntList.open(mFile.getPath());
+        for (int i = 0; i < COUNT; ++i) {
+            list.add(i * 3);
+        }
+        // 92 segments of 64KB, in regions of 1, 1, 2, 4 ... 64 segments
+        assertTrue("regions: " + list.regionCount(), list.regionCount() <= 8);
+        assertEquals(COUNT, list.size());
+        assertEquals(3 * (COUNT - 1), list.get(COUNT - 1));
+        list.close();
+
+        // 1) reopened as one mapping
+        list = OffHeapIntList.open(mFile.getPath());
+        assertEquals(1, list.regionCount());
+        assertEquals(COUNT, list.size());
+        for (int i = 0; i < COUNT; i += 997) {
+            assertEquals(i * 3, list.get(i));
+        }
+
+        // 2) trimmed, then grown again
+        list.removeRange(1000, COUNT);
+        list.trimToSize();
+        for (int i = 1000; i < 200000; ++i) {
+            list.add(-i);
+        }
+        assertEquals(-199999, list.get(199999));
+        assertEquals(999 * 3, list.get(999));
+        list.close();
+    }
+
+    public void testDirect() {
+        OffHeapIntList list = new OffHeapIntList();
+        for (int i = 0; i < 100000; ++i) {
+            list.add(100000 - i);
+        }
+        list.sort();
+        assertEquals(1, list.get(0));
+        assertEquals(100000, list.get(99999));
+        assertEquals(41, list.binarySearch(42));
+        list.close();
+    }
+}
@@ -0,0 +1,86 @@
+package com.bestpractices.base.collection;
+
+import junit.framework.TestCase;
+
+/**
+ * The suite shared by the primitive array lists, values are small ints
+ * which every element type holds exactly.
+ */
+public abstract class PrimitiveArrayListTestCase<L> extends TestCase {
+    protected abstract L newList(int capacity);
+
+    protected abstract L copy(L list);
+
+    protected abstract void add(L list, int value);
+
+    protected abstract double get(L list, int index);
+
+    protected abstract int size(L list);
+
+    protected abstract void offset(L list, int index, int valueChange);
+
+    protected abstract int removeAt(L list, int index);
+
+    protected abstract int binarySearch(L list, int value);
+
+    protected abstract int binaryInsertSearch(L list, int value);
+
+    protected abstract boolean binaryContains(L list, int value);
+
+    protected abstract int binaryAdd(L list, int value);
+
+    protected abstract void binaryRemove(L list, int value);
+
+    private L list(int... values) {
+        L list = newList(2);
+        for (int value : values) {
+            add(list, value);
+        }
+        return list;
+    }
+
+    private void assertList(L list, int... expected) {
+        assertEquals(expected.length, size(list));
+        for (int i = 0; i < expected.length; ++i) {
+            assertEquals(expected[i], get(list, i), 0);
+        }
+    }
+
+    public void testCopy() {
+        L copy = copy(list(-3, 2, 2, 9));
+        assertList(copy, -3, 2, 2, 9);
+    }
+
+    public void testOffset() {
+        L list = list(10, 2);
+        offset(list, 0, 5);
+        offset(list, 1, -4);
+        assertList(list, 15, -2);
+    }
+
+    public void testBinarySearch() {
+        L list = list(-3, 2, 2, 9);
+        assertEquals(0, binarySearch(list, -3));
+        assertEquals(3, binarySearch(list, 9));
+        int index = binarySearch(list, 2);
+        assertTrue(index == 1 || index == 2);
+
+        // insertion points
+        assertEquals(-1, binarySearch(list, -7));
+        assertEquals(-4, binarySearch(list, 5));
+        assertEquals(-5, binarySearch(list, 11));
+        assertEquals(3, binaryInsertSearch(list, 5));
+        assertFalse(binaryContains(list, 5));
+
+        // only [0, size) is searched, not the spare capacity
+        assertEquals(9, removeAt(list, 3));
+        assertEquals(-4, binarySearch(list, 9));
+    }
+
+    public void testBinaryAdd() {
+        L list = list(-3, 2, 2, 9);
+        assertEquals(3, binaryAdd(list, 5));
+        binaryRemove(list, 2);
+        assertList(list, -3, 2, 5, 9);
+    }
+}
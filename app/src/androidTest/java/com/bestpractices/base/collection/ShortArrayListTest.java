@@ -0,0 +1,71 @@
+package com.bestpractices.base.collection;
+
+public class ShortArrayListTest extends PrimitiveArrayListTestCase<ShortArrayList> {
+    @Override
+    protected ShortArrayList newList(int capacity) {
+        return new ShortArrayList(capacity);
+    }
+
+    @Override
+    protected ShortArrayList copy(ShortArrayList list) {
+        return new ShortArrayList(list);
+    }
+
+    @Override
+    protected void add(ShortArrayList list, int value) {
+        list.add((short) value);
+    }
+
+    @Override
+    protected double get(ShortArrayList list, int index) {
+        return list.get(index);
+    }
+
+    @Override
+    protected int size(ShortArrayList list) {
+        return list.size();
+    }
+
+    @Override
+    protected void offset(ShortArrayList list, int index, int valueChange) {
+        list.offset(index, (short) valueChange);
+    }
+
+    @Override
+    protected int removeAt(ShortArrayList list, int index) {
+        return (int) list.removeAt(index);
+    }
+
+    @Override
+    protected int binarySearch(ShortArrayList list, int value) {
+        return list.binarySearch((short) value);
+    }
+
+    @Override
+    protected int binaryInsertSearch(ShortArrayList list, int value) {
+        return list.binaryInsertSearch((short) value);
+    }
+
+    @Override
+    protected boolean binaryContains(ShortArrayList list, int value) {
+        return list.binaryContains((short) value);
+    }
+
+    @Override
+    protected int binaryAdd(ShortArrayList list, int value) {
+        return list.binaryAdd((short) value);
+    }
+
+    @Override
+    protected void binaryRemove(ShortArrayList list, int value) {
+        list.binaryRemove((short) value);
+    }
+
+    public void testOffsetNarrows() {
+        ShortArrayList list = new ShortArrayList();
+        list.add(Short.MAX_VALUE);
+        // narrowed back to short, wrapping around like short arithmetic
+        list.offset(0, (short) 1);
+        assertEquals(Short.MIN_VALUE, list.get(0));
+    }
+}
@@ -0,0 +1,112 @@
+package com.bestpractices.base.collection;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Producer/consumer stress of the publication order, with a capacity small
+ * enough that both sides keep hitting full and empty.
+ */
+public class SpscRingQueueTest extends TestCase {
+    private static final int COUNT = 300000;
+
+    public void testSingleThread() {
+        SpscRingQueue<Integer> queue = new SpscRingQueue<Integer>(3);
+        assertEquals(4, queue.capacity());
+        for (int i = 0; i < 4; ++i) {
+            assertTrue(queue.offer(i));
+        }
+        assertFalse(queue.offer(4));
+        assertEquals(4, queue.size());
+        assertEquals(Integer.valueOf(0), queue.peek());
+        assertEquals(Integer.valueOf(0), queue.poll());
+        assertTrue(queue.offer(4));
+
+        final int[] next = {1};
+        assertEquals(4, queue.drain(new SpscRingQueue.Consumer<Integer>() {
+            @Override
+            public void accept(Integer e) {
+                assertEquals(next[0]++, e.intValue());
+            }
+        }, 10));
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+    }
+
+    public void testDrainThrowingConsumer() {
+        SpscRingQueue<Integer> queue = new SpscRingQueue<Integer>(3);
+        for (int i = 0; i < 4; ++i) {
+            assertTrue(queue.offer(i));
+        }
+        try {
+            queue.drain(new SpscRingQueue.Consumer<Integer>() {
+                @Override
+                public void accept(Integer e) {
+                    if (e == 1) {
+                        throw new IllegalStateException();
+                    }
+                }
+            }, 10);
+            fail();
+        } catch (IllegalStateException e) {
+        }
+
+        // 0 and 1 were handed out, their slots are free again
+        assertEquals(2, queue.size());
+        assertEquals(Integer.valueOf(2), queue.poll());
+        assertEquals(Integer.valueOf(3), queue.poll());
+        assertNull(queue.poll());
+        for (int i = 0; i < 4; ++i) {
+            assertTrue(queue.offer(i));
+        }
+        assertFalse(queue.offer(4));
+    }
+
+    public void testProducerConsumerOrder() throws Exception {
+        final SpscRingQueue<Integer> queue = new SpscRingQueue<Integer>(64);
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        Thread producer = new Thread() {
+            @Override
+            public void run() {
+                for (int i = 0; i < COUNT; ) {
+                    if (queue.offer(i)) {
+                        ++i;
+                    } else {
+                        Thread.yield();
+                    }
+                }
+            }
+        };
+        producer.start();
+
+        // alternate poll and drain, both must see 0, 1, 2 ... without gaps
+        final int[] next = {0};
+        SpscRingQueue.Consumer<Integer> consumer = new SpscRingQueue.Consumer<Integer>() {
+            @Override
+            public void accept(Integer e) {
+                if (e != next[0]) {
+                    error.compareAndSet(null, new AssertionError("expected " + next[0] + " got " + e));
+                }
+                ++next[0];
+            }
+        };
+        while (next[0] < COUNT && error.get() == null) {
+            if ((next[0] & 1) == 0) {
+                Integer e = queue.poll();
+                if (e == null) {
+                    Thread.yield();
+                } else {
+                    consumer.accept(e);
+                }
+            } else if (queue.drain(consumer, 17) == 0) {
+                Thread.yield();
+            }
+        }
+        producer.join();
+
+        assertNull(error.get());
+        assertEquals(COUNT, next[0]);
+        assertTrue(queue.isEmpty());
+    }
+}
@@ -0,0 +1,17 @@
+package com.bestpractices.base.util;
+
+import junit.framework.TestCase;
+
+import java.nio.ByteBuffer;
+
+public class BufferHelperTest extends TestCase {
+    public void testRelease() {
+        assertTrue(BufferHelper.release(ByteBuffer.allocateDirect(1024)));
+        assertFalse(BufferHelper.release(ByteBuffer.allocate(1024)));
+
+        // only the owner of the memory can be released
+        ByteBuffer owner = ByteBuffer.allocateDirect(1024);
+        assertFalse(BufferHelper.release(owner.duplicate()));
+        assertTrue(BufferHelper.release(owner));
+    }
+}
@@ -0,0 +1,77 @@
+package com.bestpractices.base.util;
+
+import android.test.AndroidTestCase;
+
+import com.bestpractices.base.ContextManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+public class FileHelperTest extends AndroidTestCase {
+    private IoScheduler mScheduler;
+    private File mFile;
+
+    @Override
+    protected void setUp() throws Exception {
+        // FileHelper resolves its base paths from it
+        ContextManager.init(getContext());
+        mScheduler = new IoScheduler(3, IoScheduler.DIRECT);
+        IoScheduler.setDefault(mScheduler);
+        mFile = File.createTempFile("file-helper", ".txt");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        IoScheduler.setDefault(null);
+        mScheduler.shutdown();
+        mFile.delete();
+    }
+
+    private static FileHelper.FileAsyncOperationCallback<OutputStream, Boolean> writer(final String content) {
+        return new FileHelper.FileAsyncOperationCallback<OutputStream, Boolean>() {
+            @Override
+            public Boolean run(OutputStream stream, Object... params) {
+                try {
+                    stream.write(content.getBytes("UTF-8"));
+                    return true;
+                } catch (IOException e) {
+                    return false;
+                }
+            }
+
+            @Override
+            public void onResult(Boolean result) {
+            }
+        };
+    }
+
+    public void testAsyncOperationsOfOnePathKeepSubmitOrder() throws Exception {
+        String path = mFile.getPath();
+        for (int i = 0; i < 20; ++i) {
+            // the write is in a lower lane than the read and delete after it
+            FileHelper.writeAsync(IoScheduler.PRIORITY_BACKGROUND, path, false, writer("v" + i));
+            IoScheduler.IoFuture<byte[]> read = FileHelper.readAsync(IoScheduler.PRIORITY_USER_VISIBLE, path);
+            assertEquals("v" + i, new String(read.get(5, TimeUnit.SECONDS), "UTF-8"));
+        }
+
+        FileHelper.writeAsync(IoScheduler.PRIORITY_USER_VISIBLE, path, true, writer("last"));
+        IoScheduler.IoFuture<Boolean> delete = FileHelper.deleteAsync(IoScheduler.PRIORITY_BACKGROUND, path, null);
+        IoScheduler.IoFuture<byte[]> read = FileHelper.readAsync(IoScheduler.PRIORITY_USER_VISIBLE, path);
+        assertNull(read.get(5, TimeUnit.SECONDS));
+        assertTrue(delete.get());
+        assertFalse(mFile.exists());
+    }
+
+    public void testDeleteAfterWriteIsNotMerged() throws Exception {
+        String path = mFile.getPath();
+        IoScheduler.IoFuture<Boolean> delete1 = FileHelper.deleteAsync(IoScheduler.PRIORITY_BACKGROUND, path, null);
+        FileHelper.writeAsync(IoScheduler.PRIORITY_USER_VISIBLE, path, false, writer("again"));
+        IoScheduler.IoFuture<Boolean> delete2 = FileHelper.deleteAsync(IoScheduler.PRIORITY_BACKGROUND, path, null);
+
+        assertTrue(delete1.get(5, TimeUnit.SECONDS));
+        assertTrue(delete2.get(5, TimeUnit.SECONDS));
+        assertFalse(mFile.exists());
+    }
+}
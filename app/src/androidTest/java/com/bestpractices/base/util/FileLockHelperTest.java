@@ -0,0 +1,167 @@
+package com.bestpractices.base.util;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class FileLockHelperTest extends TestCase {
+    private File mDir;
+
+    @Override
+    protected void setUp() throws Exception {
+        mDir = File.createTempFile("file-lock", "");
+        mDir.delete();
+        mDir.mkdirs();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        File[] files = mDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mDir.delete();
+    }
+
+    private String path(int i) throws Exception {
+        File file = new File(mDir, "f" + i);
+        file.createNewFile();
+        return file.getPath();
+    }
+
+    public void testHoldingOnePathDoesNotBlockOthers() throws Exception {
+        // with 32 shared stripes, some of these used to wait for the held one
+        FileLockHelper.Lock held = FileLockHelper.lock(path(0), false);
+        ArrayList<FileLockHelper.Lock> locks = new ArrayList<FileLockHelper.Lock>();
+        for (int i = 1; i <= 100; ++i) {
+            FileLockHelper.Lock lock = FileLockHelper.lock(path(i), false, 1, TimeUnit.SECONDS);
+            assertNotNull("path " + i, lock);
+            locks.add(lock);
+        }
+        for (FileLockHelper.Lock lock : locks) {
+            lock.release();
+        }
+        held.release();
+    }
+
+    public void testExclusiveTimeout() throws Exception {
+        final String path = path(0);
+        final FileLockHelper.Lock held = FileLockHelper.lock(path, false);
+        final AtomicReference<FileLockHelper.Lock> other = new AtomicReference<FileLockHelper.Lock>();
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    other.set(FileLockHelper.lock(path, true, 100, TimeUnit.MILLISECONDS));
+                } catch (Exception e) {
+                }
+            }
+        };
+        thread.start();
+        thread.join();
+        assertNull(other.get());
+
+        // released from another thread than the one which locked it
+        Thread releaser = new Thread() {
+            @Override
+            public void run() {
+                held.release();
+            }
+        };
+        releaser.start();
+        releaser.join();
+        FileLockHelper.Lock lock = FileLockHelper.lock(path, true, 1, TimeUnit.SECONDS);
+        assertNotNull(lock);
+        lock.release();
+    }
+
+    public void testWaitingWriterBlocksReadersOfItsPathOnly() throws Exception {
+        final String a = path(0);
+        String b = path(1);
+        FileLockHelper.Lock reader = FileLockHelper.lock(a, true);
+
+        final CountDownLatch writerDone = new CountDownLatch(1);
+        Thread writer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    FileLockHelper.lock(a, false).release();
+                } catch (Exception e) {
+                }
+                writerDone.countDown();
+            }
+        };
+        writer.start();
+        while (writer.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+
+        // new readers of a wait behind the writer, those of b don't
+        assertNull(FileLockHelper.lock(a, true, 50, TimeUnit.MILLISECONDS));
+        FileLockHelper.Lock other = FileLockHelper.lock(b, true, 50, TimeUnit.MILLISECONDS);
+        assertNotNull(other);
+        other.release();
+
+        reader.release();
+        assertTrue(writerDone.await(5, TimeUnit.SECONDS));
+    }
+
+    public void testSharedLocksOverlap() throws Exception {
+        String path = path(0);
+        FileLockHelper.Lock first = FileLockHelper.lock(path, true);
+        FileLockHelper.Lock second = FileLockHelper.lock(path, true, 50, TimeUnit.MILLISECONDS);
+        assertNotNull(second);
+        assertNull(FileLockHelper.lock(path, false, 50, TimeUnit.MILLISECONDS));
+        first.release();
+        second.release();
+        // releasing twice is a no-op
+        second.release();
+
+        FileLockHelper.Lock exclusive = FileLockHelper.lock(path, false, 50, TimeUnit.MILLISECONDS);
+        assertNotNull(exclusive);
+        exclusive.release();
+    }
+
+    public void testSpellingsOfOnePathShareTheLock() throws Exception {
+        String path = path(0);
+        String other = mDir.getPath() + "/./f0";
+        FileLockHelper.Lock held = FileLockHelper.lock(path, false);
+
+        // waits on the in-process lock instead of hitting the OS lock
+        assertNull(FileLockHelper.lock(other, true, 50, TimeUnit.MILLISECONDS));
+        held.release();
+
+        FileLockHelper.Lock lock = FileLockHelper.lock(other, false, 1, TimeUnit.SECONDS);
+        assertNotNull(lock);
+        assertEquals(other, lock.path());
+        lock.release();
+    }
+
+    public void testIoThroughLockedChannel() throws Exception {
+        String path = path(0);
+        FileLockHelper.Lock writer = FileLockHelper.lock(path, false);
+        writer.channel().write(ByteBuffer.wrap(new byte[]{1, 2, 3}), 0);
+        writer.release();
+        try {
+            writer.channel();
+            fail();
+        } catch (IllegalStateException e) {
+        }
+
+        FileLockHelper.Lock first = FileLockHelper.lock(path, true);
+        FileLockHelper.Lock second = FileLockHelper.lock(path, true);
+        assertSame(first.channel(), second.channel());
+        ByteBuffer buffer = ByteBuffer.allocate(4);
+        assertEquals(3, second.channel().read(buffer, 0));
+        assertEquals(3, buffer.get(2));
+        first.release();
+        second.release();
+    }
+}
@@ -0,0 +1,138 @@
+package com.bestpractices.base.util;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class IoSchedulerTest extends TestCase {
+    private IoScheduler mScheduler;
+
+    @Override
+    protected void setUp() throws Exception {
+        mScheduler = new IoScheduler(3, IoScheduler.DIRECT);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mScheduler.shutdown();
+    }
+
+    private static Callable<String> record(final List<String> log, final String name, final CountDownLatch gate) {
+        return new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                if (gate != null) {
+                    gate.await(5, TimeUnit.SECONDS);
+                }
+                log.add(name);
+                return name;
+            }
+        };
+    }
+
+    public void testSerialKeyKeepsSubmitOrderAcrossLanes() throws Exception {
+        List<String> log = Collections.synchronizedList(new ArrayList<String>());
+        CountDownLatch gate = new CountDownLatch(1);
+
+        IoScheduler.IoFuture<String> first = mScheduler.submit(null, "p", IoScheduler.PRIORITY_BACKGROUND, record(log, "write", gate));
+        IoScheduler.IoFuture<String> second = mScheduler.submit(null, "p", IoScheduler.PRIORITY_USER_VISIBLE, record(log, "read", null));
+        IoScheduler.IoFuture<String> other = mScheduler.submit(null, "q", IoScheduler.PRIORITY_USER_VISIBLE, record(log, "other", null));
+
+        // another path is not blocked by the gated one
+        assertEquals("other", other.get(5, TimeUnit.SECONDS));
+        assertFalse(second.isDone());
+
+        gate.countDown();
+        assertEquals("read", second.get(5, TimeUnit.SECONDS));
+        assertEquals("write", first.get());
+        assertEquals(3, log.size());
+        assertTrue(log.indexOf("write") < log.indexOf("read"));
+    }
+
+    public void testMergeOnlyIntoLastOfSerialKey() throws Exception {
+        final AtomicInteger version = new AtomicInteger();
+        final AtomicInteger reads = new AtomicInteger();
+        final CountDownLatch gate = new CountDownLatch(1);
+        Callable<Integer> read = new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                gate.await(5, TimeUnit.SECONDS);
+                reads.incrementAndGet();
+                return version.get();
+            }
+        };
+
+        // 1) merged, nothing between them
+        IoScheduler.IoFuture<Integer> read1 = mScheduler.submit("read:p", "p", IoScheduler.PRIORITY_USER_VISIBLE, read);
+        IoScheduler.IoFuture<Integer> read2 = mScheduler.submit("read:p", "p", IoScheduler.PRIORITY_USER_VISIBLE, read);
+
+        // 2) not merged, a write is between them
+        mScheduler.submit(null, "p", IoScheduler.PRIORITY_BACKGROUND, new Callable<Void>() {
+            @Override
+            public Void call() {
+                version.incrementAndGet();
+                return null;
+            }
+        });
+        IoScheduler.IoFuture<Integer> read3 = mScheduler.submit("read:p", "p", IoScheduler.PRIORITY_USER_VISIBLE, read);
+
+        gate.countDown();
+        assertEquals(Integer.valueOf(0), read1.get(5, TimeUnit.SECONDS));
+        assertEquals(Integer.valueOf(0), read2.get(5, TimeUnit.SECONDS));
+        assertEquals(Integer.valueOf(1), read3.get(5, TimeUnit.SECONDS));
+        assertEquals(2, reads.get());
+    }
+
+    public void testCancelWaitingRunKeepsChainGoing() throws Exception {
+        List<String> log = Collections.synchronizedList(new ArrayList<String>());
+        CountDownLatch gate = new CountDownLatch(1);
+
+        IoScheduler.IoFuture<String> first = mScheduler.submit(null, "p", IoScheduler.PRIORITY_USER_VISIBLE, record(log, "a", gate));
+        IoScheduler.IoFuture<String> second = mScheduler.submit(null, "p", IoScheduler.PRIORITY_USER_VISIBLE, record(log, "b", null));
+        IoScheduler.IoFuture<String> third = mScheduler.submit(null, "p", IoScheduler.PRIORITY_USER_VISIBLE, record(log, "c", null));
+        assertTrue(second.cancel());
+
+        gate.countDown();
+        assertEquals("c", third.get(5, TimeUnit.SECONDS));
+        assertEquals("a", first.get());
+        try {
+            second.get();
+            fail();
+        } catch (CancellationException e) {
+        }
+        assertEquals(2, log.size());
+        assertFalse(log.contains("b"));
+    }
+
+    public void testSubmitAfterCancelRunningStartsFreshRun() throws Exception {
+        final AtomicInteger runs = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        Callable<Integer> read = new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                int run = runs.incrementAndGet();
+                if (run == 1) {
+                    started.countDown();
+                    Thread.sleep(5000);
+                }
+                return run;
+            }
+        };
+
+        IoScheduler.IoFuture<Integer> first = mScheduler.submit("read:p", "p", IoScheduler.PRIORITY_USER_VISIBLE, read);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertTrue(first.cancel());
+
+        // not merged into the interrupted run
+        IoScheduler.IoFuture<Integer> second = mScheduler.submit("read:p", "p", IoScheduler.PRIORITY_USER_VISIBLE, read);
+        assertEquals(Integer.valueOf(2), second.get(5, TimeUnit.SECONDS));
+        assertEquals(2, runs.get());
+    }
+}
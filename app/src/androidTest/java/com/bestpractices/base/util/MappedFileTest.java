@@ -0,0 +1,113 @@
+package com.bestpractices.base.util;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+public class MappedFileTest extends TestCase {
+    private File mFile;
+
+    @Override
+    protected void setUp() throws Exception {
+        mFile = File.createTempFile("mapped", ".bin");
+        FileOutputStream stream = new FileOutputStream(mFile);
+        stream.write("line 1\r\nline 2\n\nlast".getBytes("UTF-8"));
+        stream.close();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mFile.delete();
+    }
+
+    public void testHoldersShareOneMapping() {
+        int before = MappedFile.sharedCount();
+        MappedFile first = FileHelper.map(mFile.getPath(), FileChannel.MapMode.READ_ONLY);
+        MappedFile second = FileHelper.map(mFile.getPath(), FileChannel.MapMode.READ_ONLY);
+        assertNotSame(first, second);
+        assertEquals(before + 1, MappedFile.sharedCount());
+
+        // releasing twice must not unmap what second still reads
+        first.release();
+        first.release();
+        assertTrue(first.isReleased());
+        assertEquals(before + 1, MappedFile.sharedCount());
+        assertEquals('l', second.getByte(0));
+
+        // nothing stays mapped without a holder
+        second.release();
+        assertEquals(before, MappedFile.sharedCount());
+    }
+
+    public void testReleasedHolderThrows() {
+        MappedFile file = FileHelper.map(mFile.getPath(), FileChannel.MapMode.READ_ONLY);
+        file.release();
+        try {
+            file.getByte(0);
+            fail();
+        } catch (IllegalStateException e) {
+        }
+        try {
+            file.buffer();
+            fail();
+        } catch (IllegalStateException e) {
+        }
+    }
+
+    public void testLines() {
+        MappedFile file = FileHelper.map(mFile.getPath(), FileChannel.MapMode.READ_ONLY);
+        ByteBuffer buffer = file.buffer();
+        StringBuilder sb = new StringBuilder();
+        ByteBuffer line;
+        while ((line = BufferHelper.nextLine(buffer)) != null) {
+            sb.append('[').append(BufferHelper.getUtf8(line, line.remaining())).append(']');
+        }
+        assertEquals("[line 1][line 2][][last]", sb.toString());
+        file.release();
+    }
+
+    public void testSegmentsOfLargeFile() throws Exception {
+        File large = File.createTempFile("mapped-large", ".bin");
+        try {
+            // sparse, so it takes no storage
+            long boundary = MappedFile.segmentSize();
+            RandomAccessFile raf = new RandomAccessFile(large, "rw");
+            raf.setLength(boundary + 100);
+            raf.seek(boundary - 2);
+            raf.writeInt(0x11223344);
+            raf.close();
+
+            MappedFile file = FileHelper.map(large.getPath(), FileChannel.MapMode.READ_ONLY);
+            assertEquals(2, file.segmentCount());
+            assertFalse(file.isSingleSegment());
+            assertEquals(0x11223344, file.getInt(boundary - 2, ByteOrder.BIG_ENDIAN));
+            assertEquals(0x44332211, file.getInt(boundary - 2, ByteOrder.LITTLE_ENDIAN));
+            assertEquals(0x112233, file.getInt(boundary - 3, ByteOrder.BIG_ENDIAN));
+
+            byte[] bytes = new byte[4];
+            file.get(boundary - 2, bytes, 0, 4);
+            assertEquals(0x11, bytes[0]);
+            assertEquals(0x44, bytes[3]);
+            try {
+                file.getByte(boundary + 100);
+                fail();
+            } catch (IndexOutOfBoundsException e) {
+            }
+            file.release();
+        } finally {
+            large.delete();
+        }
+    }
+
+    public void testVarInt() {
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[]{(byte) 0xac, 0x02, 0x7f});
+        assertEquals(300, BufferHelper.getVarInt(buffer));
+        assertEquals(127, BufferHelper.getVarInt(buffer));
+        assertFalse(buffer.hasRemaining());
+    }
+}
@@ -778,6 +778,217 @@ public class ArrayDequeCompat<E> extends AbstractCollection<E>
         return a;
     }
 
+    // *** Bulk methods ***
+
+    /**
+     * Decides whether an element matches, see {@link #removeMatching}.
+     */
+    public static interface Predicate<E> {
+        public boolean test(E e);
+    }
+
+    /**
+     * Handles an element, see {@link DeqSpliterator}.
+     */
+    public static interface Procedure<E> {
+        public void apply(E e);
+    }
+
+    /**
+     * Removes all of the elements that match the predicate in one pass,
+     * compacting the kept elements toward the head across the wraparound.
+     * Unlike repeated {@link #remove(Object)} calls, which shift the array
+     * once per removal, this is linear.  If the predicate throws, the
+     * elements not yet tested are kept.  It's not named removeIf() to avoid
+     * clashing with Collection.removeIf() where it exists.
+     *
+     * @return <tt>true</tt> if any element was removed
+     */
+    @SuppressWarnings("unchecked")
+    public boolean removeMatching(Predicate<? super E> filter) {
+        if (filter == null)
+            throw new NullPointerException();
+        final Object[] elements = this.elements;
+        final int mask = elements.length - 1;
+        final int t = tail;
+        int i = head;
+        int w = head;
+        try {
+            for (; i != t; i = (i + 1) & mask) {
+                Object e = elements[i];
+                if (!filter.test((E) e)) {
+                    elements[w] = e;
+                    w = (w + 1) & mask;
+                }
+            }
+        } finally {
+            // keep the untested elements after an exception
+            for (; i != t; i = (i + 1) & mask) {
+                elements[w] = elements[i];
+                w = (w + 1) & mask;
+            }
+            for (int j = w; j != t; j = (j + 1) & mask) {
+                elements[j] = null;
+            }
+            tail = w;
+        }
+        return w != t;
+    }
+
+    /**
+     * Appends a[offset, offset + length) at the end of this deque with at
+     * most two array copies, growing the array at most once.
+     *
+     * @throws NullPointerException if any of the elements is null
+     */
+    public void addAll(E[] a, int offset, int length) {
+        if ((offset | length) < 0 || offset > a.length - length)
+            throw new ArrayIndexOutOfBoundsException("offset " + offset + ", length " + length
+                    + ", array length " + a.length);
+        for (int i = offset, end = offset + length; i < end; ++i) {
+            if (a[i] == null)
+                throw new NullPointerException();
+        }
+
+        // Tests "<=" because arrays aren't kept full.
+        int needed = size() + length;
+        if (needed >= elements.length) {
+            int newCapacity = Integer.highestOneBit(needed) << 1;
+            if (newCapacity < 0)
+                throw new IllegalStateException("Sorry, deque too big");
+            int size = size();
+            elements = copyElements(new Object[newCapacity]);
+            head = 0;
+            tail = size;
+        }
+
+        final Object[] elements = this.elements;
+        int firstPart = Math.min(length, elements.length - tail);
+        System.arraycopy(a, offset, elements, tail, firstPart);
+        System.arraycopy(a, offset + firstPart, elements, 0, length - firstPart);
+        tail = (tail + length) & (elements.length - 1);
+    }
+
+    /**
+     * Removes at most maxElements elements from the head and adds them to
+     * c, walking the two contiguous runs of the array directly instead of
+     * polling one by one.
+     *
+     * @return the number of elements transferred
+     * @throws IllegalArgumentException if c is this deque
+     */
+    @SuppressWarnings("unchecked")
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == this)
+            throw new IllegalArgumentException();
+        int n = Math.min(size(), maxElements);
+        if (n <= 0)
+            return 0;
+
+        final Object[] elements = this.elements;
+        final int mask = elements.length - 1;
+        int h = head;
+        int firstPart = Math.min(n, elements.length - h);
+        try {
+            for (int end = h + firstPart; h < end; ++h) {
+                c.add((E) elements[h]);
+                elements[h] = null;
+            }
+            h &= mask;
+            for (int end = n - firstPart; h < end; ++h) {
+                c.add((E) elements[h]);
+                elements[h] = null;
+            }
+        } finally {
+            // elements already added are removed even if c throws
+            head = h & mask;
+        }
+        return n;
+    }
+
+    /**
+     * Returns a cursor over the elements which can be split in halves to
+     * process them in parallel, the counterpart of a Spliterator, which isn't
+     * available on older platforms.  It's not named spliterator() to avoid
+     * clashing with Collection.spliterator() where it exists.
+     */
+    public DeqSpliterator<E> splitCursor() {
+        return new DeqSpliterator<E>(this, elements, head, size());
+    }
+
+    /**
+     * Covers mRemaining elements from mIndex.  The deque must not be
+     * modified while it's used, which is detected on a best-effort basis.
+     */
+    public static final class DeqSpliterator<E> {
+        private final ArrayDequeCompat<E> mDeque;
+        private final Object[] mElements;
+        private int mIndex;
+        private int mRemaining;
+
+        DeqSpliterator(ArrayDequeCompat<E> deque, Object[] elements, int origin, int count) {
+            mDeque = deque;
+            mElements = elements;
+            mIndex = origin;
+            mRemaining = count;
+        }
+
+        /**
+         * Split off the first half of the remaining elements.
+         *
+         * @return null if too small to split
+         */
+        public DeqSpliterator<E> trySplit() {
+            int half = mRemaining >>> 1;
+            if (half == 0) {
+                return null;
+            }
+            DeqSpliterator<E> prefix = new DeqSpliterator<E>(mDeque, mElements, mIndex, half);
+            mIndex = (mIndex + half) & (mElements.length - 1);
+            mRemaining -= half;
+            return prefix;
+        }
+
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(Procedure<? super E> procedure) {
+            if (mRemaining <= 0) {
+                return false;
+            }
+            E e = (E) mElements[mIndex];
+            if (e == null || mDeque.elements != mElements) {
+                throw new ConcurrentModificationException();
+            }
+            mIndex = (mIndex + 1) & (mElements.length - 1);
+            --mRemaining;
+            procedure.apply(e);
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        public void forEachRemaining(Procedure<? super E> procedure) {
+            final Object[] a = mElements;
+            final int mask = a.length - 1;
+            int i = mIndex;
+            int n = mRemaining;
+            mIndex = (i + n) & mask;
+            mRemaining = 0;
+            for (; n > 0; --n, i = (i + 1) & mask) {
+                E e = (E) a[i];
+                if (e == null) {
+                    throw new ConcurrentModificationException();
+                }
+                procedure.apply(e);
+            }
+            if (mDeque.elements != a) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+        public int estimateSize() {
+            return mRemaining;
+        }
+    }
+
     // *** Object methods ***
 
     /**
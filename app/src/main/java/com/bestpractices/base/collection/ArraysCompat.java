@@ -3,6 +3,7 @@ package com.bestpractices.base.collection;
 import com.bestpractices.base.util.CompatHelper;
 
 import java.util.Arrays;
+import java.util.Comparator;
 
 public class ArraysCompat {
     public static int binarySearch(int[] array, int startIndex, int endIndex, int value) {
@@ -28,6 +29,421 @@ public class ArraysCompat {
         }
     }
 
+    // Bounds of sorted ranges
+
+    /**
+     * Pack the [start, end) result of equalRange() in a long, so no array is
+     * allocated per query.
+     */
+    public static long range(int start, int end) {
+        return ((long) start << 32) | (end & 0xffffffffL);
+    }
+
+    public static int rangeStart(long range) {
+        return (int) (range >>> 32);
+    }
+
+    public static int rangeEnd(long range) {
+        return (int) range;
+    }
+
+    /**
+     * @return index of the first element >= value in sorted
+     * [startIndex, endIndex), or endIndex if none. Unlike binarySearch(), the
+     * first of equal elements is found.
+     */
+    public static int lowerBound(int[] array, int startIndex, int endIndex, int value) {
+        checkBinarySearchBounds(startIndex, endIndex, array.length);
+        return lowerBound0(array, startIndex, endIndex, value);
+    }
+
+    private static int lowerBound0(int[] array, int lo, int hi, int value) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (array[mid] < value) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * @return index of the first element > value in sorted
+     * [startIndex, endIndex), or endIndex if none.
+     */
+    public static int upperBound(int[] array, int startIndex, int endIndex, int value) {
+        checkBinarySearchBounds(startIndex, endIndex, array.length);
+        return upperBound0(array, startIndex, endIndex, value);
+    }
+
+    private static int upperBound0(int[] array, int lo, int hi, int value) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (array[mid] <= value) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * @return the range of elements equal to value, see {@link #range(int, int)}
+     */
+    public static long equalRange(int[] array, int startIndex, int endIndex, int value) {
+        checkBinarySearchBounds(startIndex, endIndex, array.length);
+        int start = lowerBound0(array, startIndex, endIndex, value);
+        return range(start, upperBound0(array, start, endIndex, value));
+    }
+
+    /**
+     * Same as lowerBound(), but probes startIndex + 1, 3, 7... first, so it's
+     * O(log d) where d is the distance to the result. Good for a cursor
+     * moving forward through sorted data.
+     */
+    public static int exponentialSearch(int[] array, int startIndex, int endIndex, int value) {
+        checkBinarySearchBounds(startIndex, endIndex, array.length);
+        int lo = startIndex;
+        int bound = 1;
+        while (lo + bound - 1 < endIndex && array[lo + bound - 1] < value) {
+            lo += bound;
+            bound <<= 1;
+        }
+        return lowerBound0(array, lo, Math.min(lo + bound - 1, endIndex), value);
+    }
+
+    public static int lowerBound(long[] array, int startIndex, int endIndex, long value) {
+        checkBinarySearchBounds(startIndex, endIndex, array.length);
+        return lowerBound0(array, startIndex, endIndex, value);
+    }
+
+    private static int lowerBound0(long[] array, int lo, int hi, long value) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (array[mid] < value) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    public static int upperBound(long[] array, int startIndex, int endIndex, long value) {
+        checkBinarySearchBounds(startIndex, endIndex, array.length);
+        return upperBound0(array, startIndex, endIndex, value);
+    }
+
+    private static int upperBound0(long[] array, int lo, int hi, long value) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (array[mid] <= value) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    public static long equalRange(long[] array, int startIndex, int endIndex, long value) {
+        checkBinarySearchBounds(startIndex, endIndex, array.length);
+        int start = lowerBound0(array, startIndex, endIndex, value);
+        return range(start, upperBound0(array, start, endIndex, value));
+    }
+
+    public static int exponentialSearch(long[] array, int startIndex, int endIndex, long value) {
+        checkBinarySearchBounds(startIndex, endIndex, array.length);
+        int lo = startIndex;
+        int bound = 1;
+        while (lo + bound - 1 < endIndex && array[lo + bound - 1] < value) {
+            lo += bound;
+            bound <<= 1;
+        }
+        return lowerBound0(array, lo, Math.min(lo + bound - 1, endIndex), value);
+    }
+
+    public static int lowerBound(float[] array, int startIndex, int endIndex, float value) {
+        checkBinarySearchBounds(startIndex, endIndex, array.length);
+        return lowerBound0(array, startIndex, endIndex, value);
+    }
+
+    private static int lowerBound0(float[] array, int lo, int hi, float value) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (Float.compare(array[mid], value) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    public static int upperBound(float[] array, int startIndex, int endIndex, float value) {
+        checkBinarySearchBounds(startIndex, endIndex, array.length);
+        return upperBound0(array, startIndex, endIndex, value);
+    }
+
+    private static int upperBound0(float[] array, int lo, int hi, float value) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (Float.compare(array[mid], value) <= 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    public static long equalRange(float[] array, int startIndex, int endIndex, float value) {
+        checkBinarySearchBounds(startIndex, endIndex, array.length);
+        int start = lowerBound0(array, startIndex, endIndex, value);
+        return range(start, upperBound0(array, start, endIndex, value));
+    }
+
+    public static int exponentialSearch(float[] array, int startIndex, int endIndex, float value) {
+        checkBinarySearchBounds(startIndex, endIndex, array.length);
+        int lo = startIndex;
+        int bound = 1;
+        while (lo + bound - 1 < endIndex && Float.compare(array[lo + bound - 1], value) < 0) {
+            lo += bound;
+            bound <<= 1;
+        }
+        return lowerBound0(array, lo, Math.min(lo + bound - 1, endIndex), value);
+    }
+
+    public static int lowerBound(double[] array, int startIndex, int endIndex, double value) {
+        checkBinarySearchBounds(startIndex, endIndex, array.length);
+        return lowerBound0(array, startIndex, endIndex, value);
+    }
+
+    private static int lowerBound0(double[] array, int lo, int hi, double value) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (Double.compare(array[mid], value) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    public static int upperBound(double[] array, int startIndex, int endIndex, double value) {
+        checkBinarySearchBounds(startIndex, endIndex, array.length);
+        return upperBound0(array, startIndex, endIndex, value);
+    }
+
+    private static int upperBound0(double[] array, int lo, int hi, double value) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (Double.compare(array[mid], value) <= 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    public static long equalRange(double[] array, int startIndex, int endIndex, double value) {
+        checkBinarySearchBounds(startIndex, endIndex, array.length);
+        int start = lowerBound0(array, startIndex, endIndex, value);
+        return range(start, upperBound0(array, start, endIndex, value));
+    }
+
+    public static int exponentialSearch(double[] array, int startIndex, int endIndex, double value) {
+        checkBinarySearchBounds(startIndex, endIndex, array.length);
+        int lo = startIndex;
+        int bound = 1;
+        while (lo + bound - 1 < endIndex && Double.compare(array[lo + bound - 1], value) < 0) {
+            lo += bound;
+            bound <<= 1;
+        }
+        return lowerBound0(array, lo, Math.min(lo + bound - 1, endIndex), value);
+    }
+
+    public static <T> int lowerBound(T[] array, int startIndex, int endIndex, T value, Comparator<? super T> comparator) {
+        checkBinarySearchBounds(startIndex, endIndex, array.length);
+        return lowerBound0(array, startIndex, endIndex, value, comparator);
+    }
+
+    private static <T> int lowerBound0(T[] array, int lo, int hi, T value, Comparator<? super T> comparator) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (comparator.compare(array[mid], value) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    public static <T> int upperBound(T[] array, int startIndex, int endIndex, T value, Comparator<? super T> comparator) {
+        checkBinarySearchBounds(startIndex, endIndex, array.length);
+        return upperBound0(array, startIndex, endIndex, value, comparator);
+    }
+
+    private static <T> int upperBound0(T[] array, int lo, int hi, T value, Comparator<? super T> comparator) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (comparator.compare(array[mid], value) <= 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    public static <T> long equalRange(T[] array, int startIndex, int endIndex, T value, Comparator<? super T> comparator) {
+        checkBinarySearchBounds(startIndex, endIndex, array.length);
+        int start = lowerBound0(array, startIndex, endIndex, value, comparator);
+        return range(start, upperBound0(array, start, endIndex, value, comparator));
+    }
+
+    public static <T> int exponentialSearch(T[] array, int startIndex, int endIndex, T value, Comparator<? super T> comparator) {
+        checkBinarySearchBounds(startIndex, endIndex, array.length);
+        int lo = startIndex;
+        int bound = 1;
+        while (lo + bound - 1 < endIndex && comparator.compare(array[lo + bound - 1], value) < 0) {
+            lo += bound;
+            bound <<= 1;
+        }
+        return lowerBound0(array, lo, Math.min(lo + bound - 1, endIndex), value, comparator);
+    }
+
+    // Cache friendly search
+
+    /**
+     * Index of the first value >= value in sorted [startIndex, endIndex), or
+     * endIndex. The loop has no data dependent branch, so the JIT can use a
+     * conditional move instead of mispredicting on random keys.
+     */
+    public static int lowerBoundBranchless(int[] array, int startIndex, int endIndex, int value) {
+        checkBinarySearchBounds(startIndex, endIndex, array.length);
+        int length = endIndex - startIndex;
+        if (length == 0) {
+            return startIndex;
+        }
+
+        int base = startIndex;
+        while (length > 1) {
+            int half = length >>> 1;
+            base = array[base + half] < value ? base + half : base;
+            length -= half;
+        }
+        return base + (array[base] < value ? 1 : 0);
+    }
+
+    /**
+     * Lower bounds of many sorted keys at once: each search starts from the
+     * previous result and gallops forward, so probes stay close in memory.
+     *
+     * @param out receives the lower bound index of each key, see
+     *            {@link #lowerBoundBranchless}
+     */
+    public static void searchAll(int[] array, int startIndex, int endIndex, int[] sortedKeys, int keyCount, int[] out) {
+        checkBinarySearchBounds(startIndex, endIndex, array.length);
+        int lo = startIndex;
+        for (int i = 0; i < keyCount; ++i) {
+            int key = sortedKeys[i];
+
+            // 1) gallop to find a range containing the key
+            int step = 1;
+            int hi = lo;
+            while (hi < endIndex && array[hi] < key) {
+                lo = hi + 1;
+                hi += step;
+                step <<= 1;
+            }
+            if (hi > endIndex) {
+                hi = endIndex;
+            }
+
+            // 2) binary search in [lo, hi]
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (array[mid] < key) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            out[i] = lo;
+        }
+    }
+
+    /**
+     * A frozen copy of a sorted int[] in Eytzinger (BFS) order: the root at 1,
+     * children of k at 2k and 2k + 1. The first levels, which every search
+     * touches, share a few cache lines, and the next probe is always at a
+     * predictable address, so it's faster than binary search on arrays
+     * larger than the cache.
+     */
+    public static final class EytzingerIndex {
+        private final int[] mValues;
+        private final int[] mSortedIndexes;
+        private final int mSize;
+        private final int mStartIndex;
+
+        public EytzingerIndex(int[] sorted, int startIndex, int endIndex) {
+            checkBinarySearchBounds(startIndex, endIndex, sorted.length);
+            mSize = endIndex - startIndex;
+            mStartIndex = startIndex;
+            mValues = new int[mSize + 1];
+            mSortedIndexes = new int[mSize + 1];
+            build(sorted, startIndex, 1);
+        }
+
+        private int build(int[] sorted, int i, int k) {
+            if (k <= mSize) {
+                i = build(sorted, i, k << 1);
+                mValues[k] = sorted[i];
+                mSortedIndexes[k] = i++;
+                i = build(sorted, i, (k << 1) + 1);
+            }
+            return i;
+        }
+
+        public int size() {
+            return mSize;
+        }
+
+        /**
+         * @return index in the source sorted array of the first value >=
+         * value, or endIndex of the source range
+         */
+        public int lowerBound(int value) {
+            final int[] values = mValues;
+            final int n = mSize;
+            int k = 1;
+            while (k <= n) {
+                k = (k << 1) + (values[k] < value ? 1 : 0);
+            }
+            // drop the trailing right turns and the last left turn
+            k >>>= Integer.numberOfTrailingZeros(~k) + 1;
+            return k == 0 ? mStartIndex + n : mSortedIndexes[k];
+        }
+
+        public boolean contains(int value) {
+            final int[] values = mValues;
+            final int n = mSize;
+            int k = 1;
+            while (k <= n) {
+                k = (k << 1) + (values[k] < value ? 1 : 0);
+            }
+            k >>>= Integer.numberOfTrailingZeros(~k) + 1;
+            return k != 0 && values[k] == value;
+        }
+    }
+
     private static void checkBinarySearchBounds(int startIndex, int endIndex, int length) {
         if (startIndex > endIndex) {
             throw new IllegalArgumentException();
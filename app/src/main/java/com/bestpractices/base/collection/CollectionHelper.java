@@ -44,35 +44,57 @@ public class CollectionHelper {
             return;
         }
 
-        // 2) check no move
-        if (fromStartIndex == toStartIndex) {
+        // 2) check no move, moving to a place inside or right after itself
+        if (toStartIndex >= fromStartIndex && toStartIndex <= fromEndIndex + 1) {
             return;
         }
 
-        // 3) do move
+        // 3) do move: rotate the moved items and the items they pass over
         final int moveItemCount = fromEndIndex - fromStartIndex + 1;
-        final ArrayList<E> moveItems = new ArrayList<E>(moveItemCount);
-        for (int k = fromStartIndex; k <= fromEndIndex; ++k) {
-            moveItems.add(list.get(k));
-        }
         if (fromStartIndex < toStartIndex) {
-            toStartIndex -= moveItemCount;
-            for (int i = fromStartIndex, k = fromEndIndex + 1; i < toStartIndex; ++i, ++k) {
-                list.set(i, list.get(k));
-            }
+            rotate(list, fromStartIndex, toStartIndex, -moveItemCount);
         } else {
-            for (int i = fromEndIndex, k = fromStartIndex - 1; k >= toStartIndex; --i, --k) {
-                list.set(i, list.get(k));
-            }
+            rotate(list, toStartIndex, fromEndIndex + 1, moveItemCount);
+        }
+    }
+
+    /**
+     * Rotate items in [fromIndex, toIndex) by distance in place, positive
+     * distance moves items toward the end, like Collections.rotate() on a
+     * sub list.</br> Done by three reversals, so no temporary list is needed
+     * and each item is written twice at most.
+     */
+    public static <E> void rotate(ArrayList<E> list, int fromIndex, int toIndex, int distance) {
+        final int length = toIndex - fromIndex;
+        if (length <= 1) {
+            return;
         }
-        for (int i = toStartIndex, k = 0, len = moveItems.size(); k < len; ++i, ++k) {
-            list.set(i, moveItems.get(k));
+        distance %= length;
+        if (distance < 0) {
+            distance += length;
         }
+        if (distance == 0) {
+            return;
+        }
+
+        final int mid = toIndex - distance;
+        reverse(list, fromIndex, mid);
+        reverse(list, mid, toIndex);
+        reverse(list, fromIndex, toIndex);
     }
 
+    private static <E> void reverse(ArrayList<E> list, int fromIndex, int toIndex) {
+        for (int i = fromIndex, j = toIndex - 1; i < j; ++i, --j) {
+            list.set(i, list.set(j, list.get(i)));
+        }
+    }
+
+    /**
+     * Remove [fromIndex, toIndex) with a single shift of the items after it.
+     */
     public static <E> void removeRange(ArrayList<E> list, int fromIndex, int toIndex) {
-        for (int i = toIndex - 1; i >= fromIndex; --i) {
-            list.remove(i);
+        if (fromIndex < toIndex) {
+            list.subList(fromIndex, toIndex).clear();
         }
     }
 
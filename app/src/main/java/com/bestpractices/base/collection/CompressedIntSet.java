@@ -0,0 +1,814 @@
+package com.bestpractices.base.collection;
+
+import java.util.Arrays;
+
+/**
+ * A compressed int set in the style of Roaring bitmaps. Values are grouped by
+ * their high 16 bits, and the low 16 bits of each group are kept in the
+ * smallest of three containers:
+ * <ul>
+ * <li>array: sorted chars, for up to {@link #ARRAY_MAX} values</li>
+ * <li>bitmap: 65536 bits</li>
+ * <li>run: [start, length - 1] pairs, chosen by {@link #runOptimize()}</li>
+ * </ul>
+ * Dense ID sets cost far less than the 4 bytes per value of a sorted
+ * {@link IntArrayList}, and set algebra works on whole words or sorted runs.
+ * <br/>
+ * NOTE: values are ordered as unsigned ints, so negative values come after
+ * positive ones in {@link #toArray()} and {@link #rank(int)}.
+ */
+public class CompressedIntSet {
+    private static final int ARRAY_MAX = 4096;
+    private static final int BITMAP_WORDS = 1024;
+
+    private char[] mKeys = new char[4];
+    private Container[] mContainers = new Container[4];
+    private int mCount;
+
+    public CompressedIntSet() {
+    }
+
+    public static CompressedIntSet of(IntArrayList values) {
+        CompressedIntSet set = new CompressedIntSet();
+        for (int i = 0, size = values.size(); i < size; ++i) {
+            set.add(values.get(i));
+        }
+        return set;
+    }
+
+    // Single value
+
+    public boolean contains(int value) {
+        int index = indexOfKey((char) (value >>> 16));
+        return index >= 0 && mContainers[index].contains((char) value);
+    }
+
+    public void add(int value) {
+        char key = (char) (value >>> 16);
+        int index = indexOfKey(key);
+        if (index < 0) {
+            index = ~index;
+            insertContainer(index, key, new ArrayContainer());
+        }
+        mContainers[index] = mContainers[index].add((char) value);
+    }
+
+    public void remove(int value) {
+        int index = indexOfKey((char) (value >>> 16));
+        if (index < 0) {
+            return;
+        }
+        Container container = mContainers[index].remove((char) value);
+        if (container.cardinality() == 0) {
+            removeContainer(index);
+        } else {
+            mContainers[index] = container;
+        }
+    }
+
+    // Statistics
+
+    public int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < mCount; ++i) {
+            cardinality += mContainers[i].cardinality();
+        }
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return mCount == 0;
+    }
+
+    /**
+     * @return count of values <= value
+     */
+    public int rank(int value) {
+        char key = (char) (value >>> 16);
+        int rank = 0;
+        for (int i = 0; i < mCount; ++i) {
+            if (mKeys[i] < key) {
+                rank += mContainers[i].cardinality();
+            } else {
+                if (mKeys[i] == key) {
+                    rank += mContainers[i].rank((char) value);
+                }
+                break;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Approximate memory used by containers, in bytes.
+     */
+    public long sizeInBytes() {
+        long size = mKeys.length * 2 + mContainers.length * 4;
+        for (int i = 0; i < mCount; ++i) {
+            size += mContainers[i].sizeInBytes();
+        }
+        return size;
+    }
+
+    /**
+     * Convert containers to run containers where it's smaller, call it after
+     * bulk loading consecutive IDs.
+     */
+    public void runOptimize() {
+        for (int i = 0; i < mCount; ++i) {
+            mContainers[i] = mContainers[i].runOptimize();
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(mContainers, 0, mCount, null);
+        mCount = 0;
+    }
+
+    // Iteration
+
+    public void forEach(IntArrayList.IntProcedure procedure) {
+        for (int i = 0; i < mCount; ++i) {
+            mContainers[i].forEach(mKeys[i] << 16, procedure);
+        }
+    }
+
+    public int[] toArray() {
+        final int[] result = new int[cardinality()];
+        forEach(new IntArrayList.IntProcedure() {
+            int mIndex;
+
+            @Override
+            public void apply(int value) {
+                result[mIndex++] = value;
+            }
+        });
+        return result;
+    }
+
+    // Set algebra
+
+    public static CompressedIntSet union(CompressedIntSet a, CompressedIntSet b) {
+        CompressedIntSet result = new CompressedIntSet();
+        int i = 0, j = 0;
+        while (i < a.mCount && j < b.mCount) {
+            char ka = a.mKeys[i];
+            char kb = b.mKeys[j];
+            if (ka < kb) {
+                result.appendContainer(ka, a.mContainers[i++].copy());
+            } else if (ka > kb) {
+                result.appendContainer(kb, b.mContainers[j++].copy());
+            } else {
+                result.appendContainer(ka, or(a.mContainers[i++], b.mContainers[j++]));
+            }
+        }
+        for (; i < a.mCount; ++i) {
+            result.appendContainer(a.mKeys[i], a.mContainers[i].copy());
+        }
+        for (; j < b.mCount; ++j) {
+            result.appendContainer(b.mKeys[j], b.mContainers[j].copy());
+        }
+        return result;
+    }
+
+    public static CompressedIntSet intersect(CompressedIntSet a, CompressedIntSet b) {
+        CompressedIntSet result = new CompressedIntSet();
+        int i = 0, j = 0;
+        while (i < a.mCount && j < b.mCount) {
+            char ka = a.mKeys[i];
+            char kb = b.mKeys[j];
+            if (ka < kb) {
+                ++i;
+            } else if (ka > kb) {
+                ++j;
+            } else {
+                Container container = and(a.mContainers[i++], b.mContainers[j++]);
+                if (container.cardinality() > 0) {
+                    result.appendContainer(ka, container);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return a - b
+     */
+    public static CompressedIntSet difference(CompressedIntSet a, CompressedIntSet b) {
+        CompressedIntSet result = new CompressedIntSet();
+        int i = 0, j = 0;
+        while (i < a.mCount) {
+            char ka = a.mKeys[i];
+            while (j < b.mCount && b.mKeys[j] < ka) {
+                ++j;
+            }
+            Container container = j < b.mCount && b.mKeys[j] == ka
+                    ? andNot(a.mContainers[i], b.mContainers[j])
+                    : a.mContainers[i].copy();
+            if (container.cardinality() > 0) {
+                result.appendContainer(ka, container);
+            }
+            ++i;
+        }
+        return result;
+    }
+
+    private static Container or(Container a, Container b) {
+        if (a instanceof ArrayContainer && b instanceof ArrayContainer) {
+            ArrayContainer x = (ArrayContainer) a;
+            ArrayContainer y = (ArrayContainer) b;
+            if (x.mCardinality + y.mCardinality <= ARRAY_MAX) {
+                return ArrayContainer.union(x, y);
+            }
+        }
+        BitmapContainer result = a.toBitmap();
+        if (result == a) {
+            result = result.copy();
+        }
+        result.or(b);
+        return result.normalize();
+    }
+
+    private static Container and(Container a, Container b) {
+        if (a instanceof RunContainer) {
+            a = ((RunContainer) a).toEfficient();
+        }
+        if (b instanceof RunContainer) {
+            b = ((RunContainer) b).toEfficient();
+        }
+        if (a instanceof ArrayContainer) {
+            return ((ArrayContainer) a).filter(b, true);
+        }
+        if (b instanceof ArrayContainer) {
+            return ((ArrayContainer) b).filter(a, true);
+        }
+        BitmapContainer result = ((BitmapContainer) a).copy();
+        result.and((BitmapContainer) b);
+        return result.normalize();
+    }
+
+    private static Container andNot(Container a, Container b) {
+        if (a instanceof RunContainer) {
+            a = ((RunContainer) a).toEfficient();
+        }
+        if (a instanceof ArrayContainer) {
+            return ((ArrayContainer) a).filter(b, false);
+        }
+        BitmapContainer result = ((BitmapContainer) a).copy();
+        result.andNot(b.toBitmap());
+        return result.normalize();
+    }
+
+    // Containers management
+
+    private int indexOfKey(char key) {
+        int lo = 0;
+        int hi = mCount - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            char midKey = mKeys[mid];
+            if (midKey < key) {
+                lo = mid + 1;
+            } else if (midKey > key) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return ~lo;
+    }
+
+    private void insertContainer(int index, char key, Container container) {
+        if (mCount == mKeys.length) {
+            mKeys = Arrays.copyOf(mKeys, mCount << 1);
+            mContainers = Arrays.copyOf(mContainers, mCount << 1);
+        }
+        System.arraycopy(mKeys, index, mKeys, index + 1, mCount - index);
+        System.arraycopy(mContainers, index, mContainers, index + 1, mCount - index);
+        mKeys[index] = key;
+        mContainers[index] = container;
+        ++mCount;
+    }
+
+    private void appendContainer(char key, Container container) {
+        insertContainer(mCount, key, container);
+    }
+
+    private void removeContainer(int index) {
+        System.arraycopy(mKeys, index + 1, mKeys, index, mCount - index - 1);
+        System.arraycopy(mContainers, index + 1, mContainers, index, mCount - index - 1);
+        mContainers[--mCount] = null;
+    }
+
+    @Override
+    public String toString() {
+        int[] values = toArray();
+        StringBuilder sb = new StringBuilder();
+        sb.append('<').append(values.length).append(">: ");
+        for (int i = 0, end = Math.min(values.length, 1000); i < end; ++i) {
+            sb.append(values[i]).append(", ");
+        }
+        return sb.toString();
+    }
+
+    // Containers
+
+    /**
+     * Holds the low 16 bits of values sharing the same high 16 bits. Mutations
+     * return the container to use afterwards, which may be a converted one.
+     */
+    private abstract static class Container {
+        abstract int cardinality();
+
+        abstract boolean contains(char low);
+
+        abstract Container add(char low);
+
+        abstract Container remove(char low);
+
+        /**
+         * @return count of values <= low
+         */
+        abstract int rank(char low);
+
+        abstract void forEach(int high, IntArrayList.IntProcedure procedure);
+
+        abstract int runCount();
+
+        abstract int sizeInBytes();
+
+        abstract Container copy();
+
+        /**
+         * @return this if already a bitmap
+         */
+        abstract BitmapContainer toBitmap();
+
+        Container runOptimize() {
+            int runCount = runCount();
+            int runBytes = 2 + runCount * 4;
+            int cardinality = cardinality();
+            if (runBytes < Math.min(cardinality * 2, BITMAP_WORDS * 8)) {
+                return RunContainer.from(this, runCount);
+            }
+            return this;
+        }
+    }
+
+    private static final class ArrayContainer extends Container {
+        char[] mValues;
+        int mCardinality;
+
+        ArrayContainer() {
+            this(4);
+        }
+
+        ArrayContainer(int capacity) {
+            mValues = new char[capacity];
+        }
+
+        static ArrayContainer union(ArrayContainer a, ArrayContainer b) {
+            ArrayContainer result = new ArrayContainer(a.mCardinality + b.mCardinality);
+            char[] x = a.mValues;
+            char[] y = b.mValues;
+            char[] out = result.mValues;
+            int i = 0, j = 0, k = 0;
+            while (i < a.mCardinality && j < b.mCardinality) {
+                if (x[i] < y[j]) {
+                    out[k++] = x[i++];
+                } else if (x[i] > y[j]) {
+                    out[k++] = y[j++];
+                } else {
+                    out[k++] = x[i++];
+                    ++j;
+                }
+            }
+            while (i < a.mCardinality) {
+                out[k++] = x[i++];
+            }
+            while (j < b.mCardinality) {
+                out[k++] = y[j++];
+            }
+            result.mCardinality = k;
+            return result;
+        }
+
+        /**
+         * @param keep true to keep values in other, false to keep values not
+         *             in other
+         */
+        ArrayContainer filter(Container other, boolean keep) {
+            ArrayContainer result = new ArrayContainer(Math.max(1, mCardinality));
+            char[] values = mValues;
+            char[] out = result.mValues;
+            int k = 0;
+            for (int i = 0; i < mCardinality; ++i) {
+                if (other.contains(values[i]) == keep) {
+                    out[k++] = values[i];
+                }
+            }
+            result.mCardinality = k;
+            return result;
+        }
+
+        private int indexOf(char low) {
+            int lo = 0;
+            int hi = mCardinality - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                char midVal = mValues[mid];
+                if (midVal < low) {
+                    lo = mid + 1;
+                } else if (midVal > low) {
+                    hi = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return ~lo;
+        }
+
+        @Override
+        int cardinality() {
+            return mCardinality;
+        }
+
+        @Override
+        boolean contains(char low) {
+            return indexOf(low) >= 0;
+        }
+
+        @Override
+        Container add(char low) {
+            int index = indexOf(low);
+            if (index >= 0) {
+                return this;
+            }
+            if (mCardinality == ARRAY_MAX) {
+                return toBitmap().add(low);
+            }
+            index = ~index;
+            if (mCardinality == mValues.length) {
+                mValues = Arrays.copyOf(mValues, Math.min(ARRAY_MAX, mCardinality + (mCardinality >> 1) + 4));
+            }
+            System.arraycopy(mValues, index, mValues, index + 1, mCardinality - index);
+            mValues[index] = low;
+            ++mCardinality;
+            return this;
+        }
+
+        @Override
+        Container remove(char low) {
+            int index = indexOf(low);
+            if (index >= 0) {
+                System.arraycopy(mValues, index + 1, mValues, index, mCardinality - index - 1);
+                --mCardinality;
+            }
+            return this;
+        }
+
+        @Override
+        int rank(char low) {
+            int index = indexOf(low);
+            return index >= 0 ? index + 1 : ~index;
+        }
+
+        @Override
+        void forEach(int high, IntArrayList.IntProcedure procedure) {
+            for (int i = 0; i < mCardinality; ++i) {
+                procedure.apply(high | mValues[i]);
+            }
+        }
+
+        @Override
+        int runCount() {
+            int runs = mCardinality > 0 ? 1 : 0;
+            for (int i = 1; i < mCardinality; ++i) {
+                if (mValues[i] != mValues[i - 1] + 1) {
+                    ++runs;
+                }
+            }
+            return runs;
+        }
+
+        @Override
+        int sizeInBytes() {
+            return mValues.length * 2 + 16;
+        }
+
+        @Override
+        Container copy() {
+            ArrayContainer result = new ArrayContainer(Math.max(1, mCardinality));
+            System.arraycopy(mValues, 0, result.mValues, 0, mCardinality);
+            result.mCardinality = mCardinality;
+            return result;
+        }
+
+        @Override
+        BitmapContainer toBitmap() {
+            BitmapContainer result = new BitmapContainer();
+            for (int i = 0; i < mCardinality; ++i) {
+                char v = mValues[i];
+                result.mWords[v >>> 6] |= 1L << v;
+            }
+            result.mCardinality = mCardinality;
+            return result;
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+        final long[] mWords = new long[BITMAP_WORDS];
+        int mCardinality;
+
+        void or(Container other) {
+            if (other instanceof BitmapContainer) {
+                long[] words = mWords;
+                long[] otherWords = ((BitmapContainer) other).mWords;
+                for (int i = 0; i < BITMAP_WORDS; ++i) {
+                    words[i] |= otherWords[i];
+                }
+                recount();
+            } else {
+                other.forEach(0, new IntArrayList.IntProcedure() {
+                    @Override
+                    public void apply(int value) {
+                        add((char) value);
+                    }
+                });
+            }
+        }
+
+        void and(BitmapContainer other) {
+            long[] words = mWords;
+            long[] otherWords = other.mWords;
+            for (int i = 0; i < BITMAP_WORDS; ++i) {
+                words[i] &= otherWords[i];
+            }
+            recount();
+        }
+
+        void andNot(BitmapContainer other) {
+            long[] words = mWords;
+            long[] otherWords = other.mWords;
+            for (int i = 0; i < BITMAP_WORDS; ++i) {
+                words[i] &= ~otherWords[i];
+            }
+            recount();
+        }
+
+        private void recount() {
+            int cardinality = 0;
+            for (long word : mWords) {
+                cardinality += Long.bitCount(word);
+            }
+            mCardinality = cardinality;
+        }
+
+        /**
+         * @return an array container if small enough
+         */
+        Container normalize() {
+            if (mCardinality > ARRAY_MAX) {
+                return this;
+            }
+            final ArrayContainer result = new ArrayContainer(Math.max(1, mCardinality));
+            forEach(0, new IntArrayList.IntProcedure() {
+                @Override
+                public void apply(int value) {
+                    result.mValues[result.mCardinality++] = (char) value;
+                }
+            });
+            return result;
+        }
+
+        @Override
+        int cardinality() {
+            return mCardinality;
+        }
+
+        @Override
+        boolean contains(char low) {
+            return (mWords[low >>> 6] & (1L << low)) != 0;
+        }
+
+        @Override
+        Container add(char low) {
+            long word = mWords[low >>> 6];
+            long newWord = word | (1L << low);
+            if (word != newWord) {
+                mWords[low >>> 6] = newWord;
+                ++mCardinality;
+            }
+            return this;
+        }
+
+        @Override
+        Container remove(char low) {
+            long word = mWords[low >>> 6];
+            long newWord = word & ~(1L << low);
+            if (word != newWord) {
+                mWords[low >>> 6] = newWord;
+                --mCardinality;
+                if (mCardinality <= ARRAY_MAX) {
+                    return normalize();
+                }
+            }
+            return this;
+        }
+
+        @Override
+        int rank(char low) {
+            int rank = 0;
+            int wordIndex = low >>> 6;
+            for (int i = 0; i < wordIndex; ++i) {
+                rank += Long.bitCount(mWords[i]);
+            }
+            // mask bits 0..(low & 63)
+            return rank + Long.bitCount(mWords[wordIndex] & (-1L >>> (63 - (low & 63))));
+        }
+
+        @Override
+        void forEach(int high, IntArrayList.IntProcedure procedure) {
+            long[] words = mWords;
+            for (int i = 0; i < BITMAP_WORDS; ++i) {
+                long word = words[i];
+                while (word != 0) {
+                    procedure.apply(high | (i << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        @Override
+        int runCount() {
+            int runs = 0;
+            long previousTop = 0;
+            for (long word : mWords) {
+                // count bits whose lower neighbour is clear
+                runs += Long.bitCount(word & ~((word << 1) | previousTop));
+                previousTop = word >>> 63;
+            }
+            return runs;
+        }
+
+        @Override
+        int sizeInBytes() {
+            return BITMAP_WORDS * 8 + 16;
+        }
+
+        @Override
+        BitmapContainer copy() {
+            BitmapContainer result = new BitmapContainer();
+            System.arraycopy(mWords, 0, result.mWords, 0, BITMAP_WORDS);
+            result.mCardinality = mCardinality;
+            return result;
+        }
+
+        @Override
+        BitmapContainer toBitmap() {
+            return this;
+        }
+    }
+
+    private static final class RunContainer extends Container {
+        /**
+         * [start, length - 1] pairs
+         */
+        final char[] mRuns;
+        final int mRunCount;
+        final int mCardinality;
+
+        RunContainer(char[] runs, int runCount) {
+            mRuns = runs;
+            mRunCount = runCount;
+            int cardinality = 0;
+            for (int i = 0; i < runCount; ++i) {
+                cardinality += runs[(i << 1) + 1] + 1;
+            }
+            mCardinality = cardinality;
+        }
+
+        static RunContainer from(Container container, int runCount) {
+            final char[] runs = new char[runCount << 1];
+            container.forEach(0, new IntArrayList.IntProcedure() {
+                int mRun = -1;
+                int mLast = -2;
+
+                @Override
+                public void apply(int value) {
+                    if (value != mLast + 1) {
+                        ++mRun;
+                        runs[mRun << 1] = (char) value;
+                    } else {
+                        ++runs[(mRun << 1) + 1];
+                    }
+                    mLast = value;
+                }
+            });
+            return new RunContainer(runs, runCount);
+        }
+
+        /**
+         * Index of the last run starting <= low, or -1
+         */
+        private int runFor(char low) {
+            int lo = 0;
+            int hi = mRunCount - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (mRuns[mid << 1] <= low) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            return lo - 1;
+        }
+
+        /**
+         * Run containers are read-only, convert for mutation and algebra.
+         */
+        Container toEfficient() {
+            return mCardinality > ARRAY_MAX ? toBitmap() : toBitmap().normalize();
+        }
+
+        @Override
+        int cardinality() {
+            return mCardinality;
+        }
+
+        @Override
+        boolean contains(char low) {
+            int run = runFor(low);
+            return run >= 0 && low - mRuns[run << 1] <= mRuns[(run << 1) + 1];
+        }
+
+        @Override
+        Container add(char low) {
+            return contains(low) ? this : toEfficient().add(low);
+        }
+
+        @Override
+        Container remove(char low) {
+            return contains(low) ? toEfficient().remove(low) : this;
+        }
+
+        @Override
+        int rank(char low) {
+            int run = runFor(low);
+            int rank = 0;
+            for (int i = 0; i < run; ++i) {
+                rank += mRuns[(i << 1) + 1] + 1;
+            }
+            if (run >= 0) {
+                rank += Math.min(low - mRuns[run << 1], mRuns[(run << 1) + 1]) + 1;
+            }
+            return rank;
+        }
+
+        @Override
+        void forEach(int high, IntArrayList.IntProcedure procedure) {
+            for (int i = 0; i < mRunCount; ++i) {
+                int start = high | mRuns[i << 1];
+                for (int v = start, end = start + mRuns[(i << 1) + 1]; v <= end; ++v) {
+                    procedure.apply(v);
+                }
+            }
+        }
+
+        @Override
+        int runCount() {
+            return mRunCount;
+        }
+
+        @Override
+        int sizeInBytes() {
+            return mRuns.length * 2 + 16;
+        }
+
+        @Override
+        Container copy() {
+            return this;
+        }
+
+        @Override
+        BitmapContainer toBitmap() {
+            BitmapContainer result = new BitmapContainer();
+            long[] words = result.mWords;
+            for (int i = 0; i < mRunCount; ++i) {
+                int start = mRuns[i << 1];
+                int end = start + mRuns[(i << 1) + 1];
+                for (int v = start; v <= end; ++v) {
+                    words[v >>> 6] |= 1L << v;
+                }
+            }
+            result.mCardinality = mCardinality;
+            return result;
+        }
+
+        @Override
+        Container runOptimize() {
+            return this;
+        }
+    }
+}
@@ -19,6 +19,12 @@ public class IntArrayList {
 
     private int[] array;
 
+    /**
+     * Reused by {@link #SORT_RADIX} and {@link #SORT_PARALLEL}, released by
+     * {@link #trimToSize()}.
+     */
+    private int[] scratch;
+
     public IntArrayList() {
         this(MIN_CAPACITY_INCREMENT);
     }
@@ -30,6 +36,7 @@ public class IntArrayList {
     public IntArrayList(IntArrayList src) {
         this(src.size());
         System.arraycopy(src.array, 0, array, 0, array.length);
+        size = array.length;
     }
 
     /**
@@ -82,6 +89,63 @@ public class IntArrayList {
         return this;
     }
 
+    public IntArrayList addAll(int[] values) {
+        return insertAll(size, values, 0, values.length);
+    }
+
+    public IntArrayList addAll(int[] values, int offset, int length) {
+        return insertAll(size, values, offset, length);
+    }
+
+    public IntArrayList addAll(IntArrayList list) {
+        return insertAll(size, list.array, 0, list.size);
+    }
+
+    public IntArrayList insertAll(int index, IntArrayList list) {
+        return insertAll(index, list.array, 0, list.size);
+    }
+
+    /**
+     * Inserts values[offset, offset + length) at index, growing the backing
+     * array at most once.
+     *
+     * @throws IndexOutOfBoundsException when {@code index < 0 || index > size()}
+     * or the range is out of values, before anything is changed
+     */
+    public IntArrayList insertAll(int index, int[] values, int offset, int length) {
+        int[] a = array;
+        int s = size;
+        if (index > s || index < 0) {
+            throwIndexOutOfBoundsException(index, s);
+        }
+        if ((offset | length) < 0 || offset > values.length - length) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", array length " + values.length);
+        }
+        if (length == 0) {
+            return this;
+        }
+        if (values == a) {
+            // inserting from self, copy out before shifting
+            int[] copy = new int[length];
+            System.arraycopy(values, offset, copy, 0, length);
+            values = copy;
+            offset = 0;
+        }
+
+        int newSize = s + length;
+        if (newSize <= a.length) {
+            System.arraycopy(a, index, a, index + length, s - index);
+        } else {
+            int[] newArray = new int[Math.max(newSize, newCapacity(s))];
+            System.arraycopy(a, 0, newArray, 0, index);
+            System.arraycopy(a, index, newArray, index + length, s - index);
+            array = a = newArray;
+        }
+        System.arraycopy(values, offset, a, index, length);
+        size = newSize;
+        return this;
+    }
+
     public int binaryAdd(int value) {
         int index = ArraysCompat.binarySearch(array, 0, size, value);
         if (index < 0) {
@@ -110,6 +174,47 @@ public class IntArrayList {
         return index;
     }
 
+    /**
+     * @return index of the first element >= value, or size if none
+     */
+    public int lowerBound(int value) {
+        return ArraysCompat.lowerBound(array, 0, size, value);
+    }
+
+    /**
+     * @return index of the first element > value, or size if none
+     */
+    public int upperBound(int value) {
+        return ArraysCompat.upperBound(array, 0, size, value);
+    }
+
+    /**
+     * @return the range of elements equal to value, read it with
+     * {@link ArraysCompat#rangeStart(long)} and {@link ArraysCompat#rangeEnd(long)}
+     */
+    public long equalRange(int value) {
+        return ArraysCompat.equalRange(array, 0, size, value);
+    }
+
+    /**
+     * @return number of elements in [fromValue, toValue)
+     */
+    public int countRange(int fromValue, int toValue) {
+        if (fromValue >= toValue) {
+            return 0;
+        }
+        int start = ArraysCompat.lowerBound(array, 0, size, fromValue);
+        return ArraysCompat.lowerBound(array, start, size, toValue) - start;
+    }
+
+    /**
+     * @return lower bound of value searching forward from startIndex, which
+     * is cheap when the result is close to startIndex
+     */
+    public int exponentialSearch(int startIndex, int value) {
+        return ArraysCompat.exponentialSearch(array, startIndex, size, value);
+    }
+
     public boolean binaryContains(int value) {
         return ArraysCompat.binarySearch(array, 0, size, value) >= 0;
     }
@@ -245,6 +350,70 @@ public class IntArrayList {
         size = s - rangeSize;
     }
 
+    // Move
+
+    /**
+     * Same as {@link CollectionHelper#move(java.util.ArrayList, int, int, int)}:
+     * move [fromStartIndex, fromEndIndex] to toStartIndex, which is based on
+     * the status before move. Done in place by rotation.
+     */
+    public void move(int fromStartIndex, int fromEndIndex, int toStartIndex) {
+        int s = size;
+        if (fromStartIndex < 0 || fromEndIndex >= s || fromStartIndex > fromEndIndex) {
+            throw new IndexOutOfBoundsException("from [" + fromStartIndex + ", " + fromEndIndex + "], size " + s);
+        }
+        if (toStartIndex < 0 || toStartIndex > s) {
+            throwIndexOutOfBoundsException(toStartIndex, s);
+        }
+        if (toStartIndex >= fromStartIndex && toStartIndex <= fromEndIndex + 1) {
+            return;
+        }
+
+        int moveCount = fromEndIndex - fromStartIndex + 1;
+        if (fromStartIndex < toStartIndex) {
+            rotate(fromStartIndex, toStartIndex, -moveCount);
+        } else {
+            rotate(toStartIndex, fromEndIndex + 1, moveCount);
+        }
+    }
+
+    /**
+     * Rotate [startIndex, endIndex) by distance in place, positive distance
+     * moves elements toward the end. Done by three reversals.
+     */
+    public void rotate(int startIndex, int endIndex, int distance) {
+        checkRange(startIndex, endIndex);
+        int length = endIndex - startIndex;
+        if (length <= 1) {
+            return;
+        }
+        distance %= length;
+        if (distance < 0) {
+            distance += length;
+        }
+        if (distance == 0) {
+            return;
+        }
+
+        int mid = endIndex - distance;
+        reverse(startIndex, mid);
+        reverse(mid, endIndex);
+        reverse(startIndex, endIndex);
+    }
+
+    /**
+     * Reverse [startIndex, endIndex) in place.
+     */
+    public void reverse(int startIndex, int endIndex) {
+        checkRange(startIndex, endIndex);
+        int[] a = array;
+        for (int i = startIndex, j = endIndex - 1; i < j; ++i, --j) {
+            int tmp = a[i];
+            a[i] = a[j];
+            a[j] = tmp;
+        }
+    }
+
     /**
      * Replaces the element at the specified location in this {@code ArrayList}
      * with the specified object.
@@ -268,6 +437,50 @@ public class IntArrayList {
         array[index] = array[index] + valueChange;
     }
 
+    /**
+     * Adds valueChange to every element in [startIndex, endIndex), with a
+     * single bounds check.
+     */
+    public void offsetRange(int startIndex, int endIndex, int valueChange) {
+        checkRange(startIndex, endIndex);
+        int[] a = array;
+        for (int i = startIndex; i < endIndex; ++i) {
+            a[i] += valueChange;
+        }
+    }
+
+    /**
+     * Sets every element in [startIndex, endIndex) to value.
+     */
+    public void fill(int startIndex, int endIndex, int value) {
+        checkRange(startIndex, endIndex);
+        Arrays.fill(array, startIndex, endIndex, value);
+    }
+
+    /**
+     * Replaces each element with the sum of itself and all elements before
+     * it, e.g. counts to start offsets. Inverse of {@link #delta()}.
+     */
+    public void prefixSum() {
+        int[] a = array;
+        int sum = 0;
+        for (int i = 0, s = size; i < s; ++i) {
+            sum += a[i];
+            a[i] = sum;
+        }
+    }
+
+    /**
+     * Replaces each element with its difference from the previous one, the
+     * first element is kept. Inverse of {@link #prefixSum()}.
+     */
+    public void delta() {
+        int[] a = array;
+        for (int i = size - 1; i > 0; --i) {
+            a[i] -= a[i - 1];
+        }
+    }
+
     /**
      * Returns a new array containing all elements contained in this
      * {@code ArrayList}.
@@ -281,6 +494,14 @@ public class IntArrayList {
         return result;
     }
 
+    /**
+     * The backing array for bulk copies within the package, only [0, size())
+     * is valid and it's replaced when the list grows.
+     */
+    int[] backingArray() {
+        return array;
+    }
+
     /**
      * Sets the capacity of this {@code ArrayList} to be the same as the current
      * size.
@@ -288,6 +509,7 @@ public class IntArrayList {
      * @see #size
      */
     public void trimToSize() {
+        scratch = null;
         int s = size;
         if (s == array.length) {
             return;
@@ -299,10 +521,600 @@ public class IntArrayList {
         }
     }
 
+    // Sort
+
+    /**
+     * Single-threaded {@link Arrays#sort(int[], int, int)}.
+     */
+    public static final int SORT_DEFAULT = 0;
+
+    /**
+     * Sort slices on all cores then merge them, for lists larger than
+     * {@link #PARALLEL_SORT_THRESHOLD}. Smaller lists use {@link #SORT_DEFAULT}.
+     */
+    public static final int SORT_PARALLEL = 1;
+
+    /**
+     * LSD radix sort by bytes, O(n) for any int values, but needs a scratch
+     * buffer as large as the list.
+     */
+    public static final int SORT_RADIX = 2;
+
+    private static final int PARALLEL_SORT_THRESHOLD = 1 << 16;
+
     public void sort() {
         Arrays.sort(array, 0, size);
     }
 
+    /**
+     * @param strategy {@link #SORT_DEFAULT}, {@link #SORT_PARALLEL} or
+     *                 {@link #SORT_RADIX}
+     */
+    public void sort(int strategy) {
+        switch (strategy) {
+            case SORT_PARALLEL:
+                int parts = Math.min(Runtime.getRuntime().availableProcessors(), size / (PARALLEL_SORT_THRESHOLD >> 2));
+                if (parts > 1 && size >= PARALLEL_SORT_THRESHOLD) {
+                    parallelSort(parts);
+                } else {
+                    sort();
+                }
+                break;
+
+            case SORT_RADIX:
+                radixSort();
+                break;
+
+            default:
+                sort();
+                break;
+        }
+    }
+
+    /**
+     * Sort and remove duplicated values in place.
+     *
+     * @return count of removed values
+     */
+    public int sortAndDedupe(int strategy) {
+        sort(strategy);
+
+        int[] a = array;
+        int s = size;
+        if (s < 2) {
+            return 0;
+        }
+        int last = 0;
+        for (int i = 1; i < s; ++i) {
+            if (a[i] != a[last]) {
+                a[++last] = a[i];
+            }
+        }
+        size = last + 1;
+        return s - size;
+    }
+
+    private int[] ensureScratch() {
+        if (scratch == null || scratch.length < size) {
+            scratch = new int[array.length];
+        }
+        return scratch;
+    }
+
+    private void radixSort() {
+        final int s = size;
+        int[] src = array;
+        int[] dst = ensureScratch();
+        final int[] count = new int[256];
+        for (int shift = 0; shift < 32; shift += 8) {
+            // flip sign bit of the highest byte so negative values come first
+            final int flip = shift == 24 ? 0x80 : 0;
+
+            // 1) count digits, skip the pass if all values share one digit
+            Arrays.fill(count, 0);
+            for (int i = 0; i < s; ++i) {
+                ++count[((src[i] >>> shift) & 0xff) ^ flip];
+            }
+            if (s == 0 || count[((src[0] >>> shift) & 0xff) ^ flip] == s) {
+                continue;
+            }
+
+            // 2) digit counts to start offsets
+            for (int b = 0, sum = 0; b < 256; ++b) {
+                int c = count[b];
+                count[b] = sum;
+                sum += c;
+            }
+
+            // 3) scatter
+            for (int i = 0; i < s; ++i) {
+                int v = src[i];
+                dst[count[((v >>> shift) & 0xff) ^ flip]++] = v;
+            }
+            int[] tmp = src;
+            src = dst;
+            dst = tmp;
+        }
+
+        // swap buffers instead of copying back
+        if (src != array) {
+            scratch = array;
+            array = src;
+        }
+    }
+
+    private void parallelSort(int parts) {
+        final int s = size;
+
+        // 1) sort slices concurrently
+        final int[] bounds = new int[parts + 1];
+        for (int i = 0; i <= parts; ++i) {
+            bounds[i] = (int) ((long) s * i / parts);
+        }
+        final int[] a = array;
+        Runnable[] tasks = new Runnable[parts];
+        for (int i = 0; i < parts; ++i) {
+            final int from = bounds[i];
+            final int to = bounds[i + 1];
+            tasks[i] = new Runnable() {
+                @Override
+                public void run() {
+                    Arrays.sort(a, from, to);
+                }
+            };
+        }
+        runConcurrently(tasks);
+
+        // 2) merge sorted runs pairwise, level by level
+        int[] src = a;
+        int[] dst = ensureScratch();
+        int[] runs = bounds;
+        while (runs.length > 2) {
+            final int runCount = runs.length - 1;
+            final int[] newRuns = new int[(runCount + 1) / 2 + 1];
+            tasks = new Runnable[(runCount + 1) / 2];
+            for (int i = 0, j = 0; i < runCount; i += 2, ++j) {
+                final int lo = runs[i];
+                final int mid = runs[i + 1];
+                final int hi = i + 2 <= runCount ? runs[i + 2] : mid;
+                final int[] from = src;
+                final int[] to = dst;
+                newRuns[j] = lo;
+                tasks[j] = new Runnable() {
+                    @Override
+                    public void run() {
+                        merge(from, lo, mid, hi, to);
+                    }
+                };
+            }
+            newRuns[newRuns.length - 1] = s;
+            runConcurrently(tasks);
+
+            int[] tmp = src;
+            src = dst;
+            dst = tmp;
+            runs = newRuns;
+        }
+
+        if (src != array) {
+            scratch = array;
+            array = src;
+        }
+    }
+
+    private static void merge(int[] src, int lo, int mid, int hi, int[] dst) {
+        int i = lo;
+        int j = mid;
+        int k = lo;
+        while (i < mid && j < hi) {
+            dst[k++] = src[i] <= src[j] ? src[i++] : src[j++];
+        }
+        System.arraycopy(src, i, dst, k, mid - i);
+        System.arraycopy(src, j, dst, k + mid - i, hi - j);
+    }
+
+    /**
+     * Run tasks[0] on the calling thread and others on new threads, then wait
+     * for all of them.
+     */
+    private static void runConcurrently(Runnable[] tasks) {
+        Thread[] threads = new Thread[tasks.length];
+        for (int i = 1; i < tasks.length; ++i) {
+            threads[i] = new Thread(tasks[i], "IntArrayList-sort");
+            threads[i].start();
+        }
+        tasks[0].run();
+
+        boolean interrupted = false;
+        for (int i = 1; i < threads.length; ++i) {
+            while (true) {
+                try {
+                    threads[i].join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Sorted set algebra
+
+    /**
+     * When one list is this many times larger than the other, walk the small
+     * one and gallop through the large one.
+     */
+    private static final int GALLOP_RATIO = 32;
+
+    /**
+     * out = a | b, for sorted lists without duplicates. out is cleared first
+     * and must be neither a nor b.
+     */
+    public static void union(IntArrayList a, IntArrayList b, IntArrayList out) {
+        checkOutput(a, b, out);
+        if (a.size < b.size) {
+            IntArrayList tmp = a;
+            a = b;
+            b = tmp;
+        }
+        final int[] x = a.array;
+        final int[] y = b.array;
+        final int xs = a.size;
+        final int ys = b.size;
+        out.ensureCapacity(xs + ys);
+        final int[] o = out.array;
+        int i = 0, j = 0, k = 0;
+        if (xs > ys * GALLOP_RATIO) {
+            // copy runs of the large list between values of the small one
+            for (; j < ys; ++j) {
+                int v = y[j];
+                int next = gallop(x, i, xs, v);
+                System.arraycopy(x, i, o, k, next - i);
+                k += next - i;
+                i = next;
+                if (i < xs && x[i] == v) {
+                    ++i;
+                }
+                o[k++] = v;
+            }
+        } else {
+            while (i < xs && j < ys) {
+                int vx = x[i];
+                int vy = y[j];
+                if (vx < vy) {
+                    o[k++] = vx;
+                    ++i;
+                } else if (vx > vy) {
+                    o[k++] = vy;
+                    ++j;
+                } else {
+                    o[k++] = vx;
+                    ++i;
+                    ++j;
+                }
+            }
+            System.arraycopy(y, j, o, k, ys - j);
+            k += ys - j;
+        }
+        System.arraycopy(x, i, o, k, xs - i);
+        out.size = k + xs - i;
+    }
+
+    /**
+     * out = a & b, for sorted lists. out is cleared first and must be neither
+     * a nor b.
+     */
+    public static void intersect(IntArrayList a, IntArrayList b, IntArrayList out) {
+        checkOutput(a, b, out);
+        if (a.size > b.size) {
+            IntArrayList tmp = a;
+            a = b;
+            b = tmp;
+        }
+        final int[] x = a.array;
+        final int[] y = b.array;
+        final int xs = a.size;
+        final int ys = b.size;
+        out.ensureCapacity(xs);
+        final int[] o = out.array;
+        int i = 0, j = 0, k = 0;
+        if (ys > xs * GALLOP_RATIO) {
+            for (; i < xs && j < ys; ++i) {
+                j = gallop(y, j, ys, x[i]);
+                if (j < ys && y[j] == x[i]) {
+                    o[k++] = x[i];
+                    ++j;
+                }
+            }
+        } else {
+            while (i < xs && j < ys) {
+                int vx = x[i];
+                int vy = y[j];
+                if (vx < vy) {
+                    ++i;
+                } else if (vx > vy) {
+                    ++j;
+                } else {
+                    o[k++] = vx;
+                    ++i;
+                    ++j;
+                }
+            }
+        }
+        out.size = k;
+    }
+
+    /**
+     * out = a - b, for sorted lists. out is cleared first and must be neither
+     * a nor b.
+     */
+    public static void difference(IntArrayList a, IntArrayList b, IntArrayList out) {
+        checkOutput(a, b, out);
+        final int[] x = a.array;
+        final int[] y = b.array;
+        final int xs = a.size;
+        final int ys = b.size;
+        out.ensureCapacity(xs);
+        final int[] o = out.array;
+        int i = 0, j = 0, k = 0;
+        if (ys > xs * GALLOP_RATIO) {
+            // probe each value of a in the large b
+            for (; i < xs; ++i) {
+                j = gallop(y, j, ys, x[i]);
+                if (j >= ys || y[j] != x[i]) {
+                    o[k++] = x[i];
+                }
+            }
+        } else if (xs > ys * GALLOP_RATIO) {
+            // copy runs of the large a between values of b
+            for (; j < ys && i < xs; ++j) {
+                int next = gallop(x, i, xs, y[j]);
+                System.arraycopy(x, i, o, k, next - i);
+                k += next - i;
+                i = next;
+                while (i < xs && x[i] == y[j]) {
+                    ++i;
+                }
+            }
+            System.arraycopy(x, i, o, k, xs - i);
+            k += xs - i;
+        } else {
+            while (i < xs && j < ys) {
+                int vx = x[i];
+                int vy = y[j];
+                if (vx < vy) {
+                    o[k++] = vx;
+                    ++i;
+                } else if (vx > vy) {
+                    ++j;
+                } else {
+                    ++i;
+                }
+            }
+            System.arraycopy(x, i, o, k, xs - i);
+            k += xs - i;
+        }
+        out.size = k;
+    }
+
+    /**
+     * Merge sorted lists into out, keeping duplicates. out is cleared first
+     * and must not be one of lists.
+     */
+    public static void kWayMerge(IntArrayList[] lists, IntArrayList out) {
+        // 1) collect non-empty lists
+        int total = 0;
+        int count = 0;
+        IntArrayList[] sources = new IntArrayList[lists.length];
+        for (IntArrayList list : lists) {
+            if (list == out) {
+                throw new IllegalArgumentException("out must not be an input");
+            }
+            if (list.size > 0) {
+                sources[count++] = list;
+                total += list.size;
+            }
+        }
+        out.size = 0;
+        out.ensureCapacity(total);
+        if (count == 1) {
+            System.arraycopy(sources[0].array, 0, out.array, 0, total);
+            out.size = total;
+            return;
+        }
+
+        // 2) min-heap of sources by their current values
+        final int[] cursors = new int[count];
+        final int[] heap = new int[count];
+        for (int i = 0; i < count; ++i) {
+            heap[i] = i;
+        }
+        for (int i = (count >>> 1) - 1; i >= 0; --i) {
+            siftDown(heap, i, count, sources, cursors);
+        }
+
+        // 3) pop the smallest, advance its source
+        final int[] o = out.array;
+        int k = 0;
+        int heapSize = count;
+        while (heapSize > 0) {
+            int top = heap[0];
+            IntArrayList source = sources[top];
+            o[k++] = source.array[cursors[top]++];
+            if (cursors[top] == source.size) {
+                if (--heapSize == 0) {
+                    // its cursor is past the end, siftDown must not read it
+                    break;
+                }
+                heap[0] = heap[heapSize];
+            }
+            siftDown(heap, 0, heapSize, sources, cursors);
+        }
+        out.size = k;
+    }
+
+    private static void siftDown(int[] heap, int i, int size, IntArrayList[] sources, int[] cursors) {
+        int node = heap[i];
+        int value = sources[node].array[cursors[node]];
+        int child;
+        while ((child = (i << 1) + 1) < size) {
+            int childValue = sources[heap[child]].array[cursors[heap[child]]];
+            if (child + 1 < size) {
+                int rightValue = sources[heap[child + 1]].array[cursors[heap[child + 1]]];
+                if (rightValue < childValue) {
+                    ++child;
+                    childValue = rightValue;
+                }
+            }
+            if (value <= childValue) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = node;
+    }
+
+    /**
+     * Exponential search from start.
+     *
+     * @return index of the first value >= value in [start, end), or end
+     */
+    private static int gallop(int[] array, int start, int end, int value) {
+        if (start >= end || array[start] >= value) {
+            return start;
+        }
+
+        // 1) find range (lo, hi] by doubling steps, array[lo] < value
+        int lo = start;
+        int step = 1;
+        int hi = start + 1;
+        while (hi < end && array[hi] < value) {
+            lo = hi;
+            step <<= 1;
+            hi = start + step;
+        }
+        if (hi > end) {
+            hi = end;
+        }
+
+        // 2) binary search in (lo, hi]
+        ++lo;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (array[mid] < value) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static void checkOutput(IntArrayList a, IntArrayList b, IntArrayList out) {
+        if (out == a || out == b) {
+            throw new IllegalArgumentException("out must not be an input");
+        }
+        out.size = 0;
+    }
+
+    /**
+     * Grow the backing array to hold at least capacity elements, keeping
+     * contents.
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity > array.length) {
+            int[] newArray = new int[Math.max(capacity, newCapacity(array.length))];
+            System.arraycopy(array, 0, newArray, 0, size);
+            array = newArray;
+        }
+    }
+
+    // Iteration
+
+    /**
+     * Visit every element without the bounds check of {@link #get(int)}.
+     */
+    public void forEach(IntProcedure procedure) {
+        forEach(0, size, procedure);
+    }
+
+    public void forEach(int startIndex, int endIndex, IntProcedure procedure) {
+        checkRange(startIndex, endIndex);
+        int[] a = array;
+        for (int i = startIndex; i < endIndex; ++i) {
+            procedure.apply(a[i]);
+        }
+    }
+
+    /**
+     * A splittable cursor over the current elements, hand the halves from
+     * {@link IntSpliterator#trySplit()} to different threads to process a
+     * large list in parallel. The list must not be modified meanwhile.
+     */
+    public IntSpliterator spliterator() {
+        return new IntSpliterator(array, 0, size);
+    }
+
+    public static interface IntProcedure {
+        void apply(int value);
+    }
+
+    /**
+     * Same idea as Spliterator.OfInt, which is not available on our min sdk.
+     */
+    public static final class IntSpliterator {
+        private final int[] mArray;
+        private int mIndex;
+        private final int mFence;
+
+        IntSpliterator(int[] array, int origin, int fence) {
+            mArray = array;
+            mIndex = origin;
+            mFence = fence;
+        }
+
+        /**
+         * Split off the first half of the remaining elements.
+         *
+         * @return null if too small to split
+         */
+        public IntSpliterator trySplit() {
+            int lo = mIndex;
+            int mid = (lo + mFence) >>> 1;
+            if (lo >= mid) {
+                return null;
+            }
+            mIndex = mid;
+            return new IntSpliterator(mArray, lo, mid);
+        }
+
+        public boolean tryAdvance(IntProcedure procedure) {
+            if (mIndex < mFence) {
+                procedure.apply(mArray[mIndex++]);
+                return true;
+            }
+            return false;
+        }
+
+        public void forEachRemaining(IntProcedure procedure) {
+            int[] a = mArray;
+            int i = mIndex;
+            int fence = mFence;
+            mIndex = fence;
+            for (; i < fence; ++i) {
+                procedure.apply(a[i]);
+            }
+        }
+
+        public int estimateSize() {
+            return mFence - mIndex;
+        }
+    }
+
     @Override
     public String toString() {
         String str = "<" + size + ">: ";
@@ -320,6 +1132,18 @@ public class IntArrayList {
         throw new IndexOutOfBoundsException("Invalid index " + index + ", size is " + size);
     }
 
+    private void checkRange(int startIndex, int endIndex) {
+        if (startIndex < 0) {
+            throw new IndexOutOfBoundsException("fromIndex " + startIndex + " < 0");
+        }
+        if (endIndex > size) {
+            throw new IndexOutOfBoundsException("toIndex " + endIndex + " > size " + size);
+        }
+        if (startIndex > endIndex) {
+            throw new IndexOutOfBoundsException("fromIndex " + startIndex + " > toIndex " + endIndex);
+        }
+    }
+
     /**
      * This method controls the growth of ArrayList capacities. It represents a
      * time-space tradeoff: we don't want to grow lists too frequently (which
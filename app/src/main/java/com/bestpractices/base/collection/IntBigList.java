@@ -0,0 +1,202 @@
+package com.bestpractices.base.collection;
+
+import java.util.Arrays;
+
+/**
+ * An append-mostly int list made of fixed-size pages. Unlike
+ * {@link IntArrayList}, growing allocates one more page instead of copying
+ * everything into a 1.5x array, so there is no latency spike or large
+ * allocation for multi-million element lists, and indices are longs so the
+ * size is not limited to 2^31.
+ */
+public class IntBigList {
+    /**
+     * 16KB per page.
+     */
+    private static final int PAGE_SHIFT = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private int[][] mPages = new int[8][];
+    private int mPageCount;
+    private long mSize;
+
+    public IntBigList() {
+    }
+
+    public long size() {
+        return mSize;
+    }
+
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    // Add
+
+    public IntBigList add(int value) {
+        long s = mSize;
+        int offset = (int) (s & PAGE_MASK);
+        if (offset == 0 && s >>> PAGE_SHIFT == mPageCount) {
+            appendPage();
+        }
+        mPages[(int) (s >>> PAGE_SHIFT)][offset] = value;
+        mSize = s + 1;
+        return this;
+    }
+
+    public IntBigList addAll(int[] values, int offset, int length) {
+        if ((offset | length) < 0 || offset > values.length - length) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", array length " + values.length);
+        }
+        while (length > 0) {
+            long s = mSize;
+            int pageOffset = (int) (s & PAGE_MASK);
+            if (pageOffset == 0 && s >>> PAGE_SHIFT == mPageCount) {
+                appendPage();
+            }
+            int count = Math.min(length, PAGE_SIZE - pageOffset);
+            System.arraycopy(values, offset, mPages[(int) (s >>> PAGE_SHIFT)], pageOffset, count);
+            offset += count;
+            length -= count;
+            mSize = s + count;
+        }
+        return this;
+    }
+
+    public IntBigList addAll(IntArrayList list) {
+        return addAll(list.backingArray(), 0, list.size());
+    }
+
+    private void appendPage() {
+        if (mPageCount == mPages.length) {
+            // only the page directory is copied, which is PAGE_SIZE times smaller
+            mPages = Arrays.copyOf(mPages, mPageCount << 1);
+        }
+        if (mPages[mPageCount] == null) {
+            mPages[mPageCount] = new int[PAGE_SIZE];
+        }
+        ++mPageCount;
+    }
+
+    // Access
+
+    public int get(long index) {
+        if (index >= mSize || index < 0) {
+            throwIndexOutOfBoundsException(index, mSize);
+        }
+        return mPages[(int) (index >>> PAGE_SHIFT)][(int) (index & PAGE_MASK)];
+    }
+
+    public void set(long index, int value) {
+        if (index >= mSize || index < 0) {
+            throwIndexOutOfBoundsException(index, mSize);
+        }
+        mPages[(int) (index >>> PAGE_SHIFT)][(int) (index & PAGE_MASK)] = value;
+    }
+
+    public void offset(long index, int valueChange) {
+        if (index >= mSize || index < 0) {
+            throwIndexOutOfBoundsException(index, mSize);
+        }
+        mPages[(int) (index >>> PAGE_SHIFT)][(int) (index & PAGE_MASK)] += valueChange;
+    }
+
+    /**
+     * Visit every element page by page, without per element bounds check.
+     */
+    public void forEach(IntArrayList.IntProcedure procedure) {
+        long remaining = mSize;
+        for (int p = 0; remaining > 0; ++p) {
+            int[] page = mPages[p];
+            int count = (int) Math.min(remaining, PAGE_SIZE);
+            for (int i = 0; i < count; ++i) {
+                procedure.apply(page[i]);
+            }
+            remaining -= count;
+        }
+    }
+
+    /**
+     * @return the non-negative index of the element, or a negative index which
+     * is -index - 1 where the element would be inserted.
+     */
+    public long binarySearch(int value) {
+        long lo = 0;
+        long hi = mSize - 1;
+        while (lo <= hi) {
+            long mid = (lo + hi) >>> 1;
+            int midVal = mPages[(int) (mid >>> PAGE_SHIFT)][(int) (mid & PAGE_MASK)];
+            if (midVal < value) {
+                lo = mid + 1;
+            } else if (midVal > value) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return ~lo;
+    }
+
+    public boolean binaryContains(int value) {
+        return binarySearch(value) >= 0;
+    }
+
+    // Remove
+
+    public int removeLast() {
+        long s = mSize;
+        if (s == 0) {
+            throwIndexOutOfBoundsException(0, 0);
+        }
+        int result = get(s - 1);
+        mSize = s - 1;
+        return result;
+    }
+
+    /**
+     * Pages are kept for reuse, call {@link #trimToSize()} to release them.
+     */
+    public void clear() {
+        mSize = 0;
+    }
+
+    /**
+     * Release pages beyond size.
+     */
+    public void trimToSize() {
+        mPageCount = (int) ((mSize + PAGE_MASK) >>> PAGE_SHIFT);
+        for (int i = mPageCount; i < mPages.length; ++i) {
+            mPages[i] = null;
+        }
+    }
+
+    /**
+     * @throws IllegalStateException if size exceeds the array limit
+     */
+    public int[] toArray() {
+        if (mSize > Integer.MAX_VALUE) {
+            throw new IllegalStateException("too large for an array: " + mSize);
+        }
+        int s = (int) mSize;
+        int[] result = new int[s];
+        for (int p = 0, pos = 0; pos < s; ++p, pos += PAGE_SIZE) {
+            System.arraycopy(mPages[p], 0, result, pos, Math.min(PAGE_SIZE, s - pos));
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append('<').append(mSize).append(">: ");
+        for (long i = 0, end = Math.min(mSize, 1000); i < end; ++i) {
+            sb.append(get(i)).append(", ");
+        }
+        return sb.toString();
+    }
+
+    private static IndexOutOfBoundsException throwIndexOutOfBoundsException(long index, long size) {
+        throw new IndexOutOfBoundsException("Invalid index " + index + ", size is " + size);
+    }
+}
@@ -0,0 +1,352 @@
+package com.bestpractices.base.collection;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+
+/**
+ * An int to int hash map without boxing, for counters and indexes with more
+ * keys than SparseArray can handle: open addressing with linear probing in two
+ * parallel arrays, so a lookup touches one or two cache lines and no Entry
+ * object is ever allocated.<br/>
+ * Slots with key 0 are empty, the key 0 itself is stored aside, so any key
+ * can be used. Removal shifts the following entries back instead of leaving
+ * tombstones.
+ */
+public class IntIntHashMap {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private int[] mKeys;
+    private int[] mValues;
+    private int mMask;
+    private int mSize;
+    private int mThreshold;
+
+    private boolean mHasZeroKey;
+    private int mZeroValue;
+
+    private int mModCount;
+
+    public IntIntHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize number of keys to hold without rehash
+     */
+    public IntIntHashMap(int expectedSize) {
+        allocate(tableSizeFor((int) Math.ceil(expectedSize / LOAD_FACTOR)));
+    }
+
+    private static int tableSizeFor(int capacity) {
+        return Math.max(4, Integer.highestOneBit(Math.max(capacity, 1) - 1) << 1);
+    }
+
+    private void allocate(int capacity) {
+        mKeys = new int[capacity];
+        mValues = new int[capacity];
+        mMask = capacity - 1;
+        mThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    // Access
+
+    /**
+     * @return slot of the key, or ~slot of the empty slot where it would be
+     */
+    private int find(int key) {
+        final int[] keys = mKeys;
+        final int mask = mMask;
+        int slot = mix(key) & mask;
+        int k;
+        while ((k = keys[slot]) != 0) {
+            if (k == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return ~slot;
+    }
+
+    public boolean containsKey(int key) {
+        if (key == 0) {
+            return mHasZeroKey;
+        }
+        return find(key) >= 0;
+    }
+
+    public int get(int key) {
+        return get(key, 0);
+    }
+
+    public int get(int key, int valueIfKeyNotFound) {
+        if (key == 0) {
+            return mHasZeroKey ? mZeroValue : valueIfKeyNotFound;
+        }
+        int slot = find(key);
+        return slot >= 0 ? mValues[slot] : valueIfKeyNotFound;
+    }
+
+    // Add
+
+    /**
+     * @return previous value of the key, or 0 if none
+     */
+    public int put(int key, int value) {
+        if (key == 0) {
+            int previous = mZeroValue;
+            mZeroValue = value;
+            if (!mHasZeroKey) {
+                mHasZeroKey = true;
+                ++mSize;
+                ++mModCount;
+                return 0;
+            }
+            return previous;
+        }
+
+        int slot = find(key);
+        if (slot >= 0) {
+            int previous = mValues[slot];
+            mValues[slot] = value;
+            return previous;
+        }
+        insertAt(~slot, key, value);
+        return 0;
+    }
+
+    /**
+     * Add delta to the value of the key, a missing key counts as 0.
+     *
+     * @return the new value
+     */
+    public int addTo(int key, int delta) {
+        if (key == 0) {
+            if (!mHasZeroKey) {
+                mHasZeroKey = true;
+                mZeroValue = 0;
+                ++mSize;
+                ++mModCount;
+            }
+            return mZeroValue += delta;
+        }
+
+        int slot = find(key);
+        if (slot >= 0) {
+            return mValues[slot] += delta;
+        }
+        insertAt(~slot, key, delta);
+        return delta;
+    }
+
+    private void insertAt(int slot, int key, int value) {
+        if (mSize >= mThreshold) {
+            rehash(mKeys.length << 1);
+            slot = ~find(key);
+        }
+        mKeys[slot] = key;
+        mValues[slot] = value;
+        ++mSize;
+        ++mModCount;
+    }
+
+    private void rehash(int capacity) {
+        final int[] oldKeys = mKeys;
+        final int[] oldValues = mValues;
+        allocate(capacity);
+        final int[] keys = mKeys;
+        final int[] values = mValues;
+        final int mask = mMask;
+        for (int i = 0; i < oldKeys.length; ++i) {
+            int key = oldKeys[i];
+            if (key != 0) {
+                int slot = mix(key) & mask;
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    // Remove
+
+    /**
+     * @return value of the removed key, or valueIfKeyNotFound
+     */
+    public int remove(int key, int valueIfKeyNotFound) {
+        if (key == 0) {
+            if (!mHasZeroKey) {
+                return valueIfKeyNotFound;
+            }
+            mHasZeroKey = false;
+            --mSize;
+            ++mModCount;
+            return mZeroValue;
+        }
+
+        int slot = find(key);
+        if (slot < 0) {
+            return valueIfKeyNotFound;
+        }
+        int result = mValues[slot];
+        removeAt(slot);
+        return result;
+    }
+
+    public boolean remove(int key) {
+        if (!containsKey(key)) {
+            return false;
+        }
+        remove(key, 0);
+        return true;
+    }
+
+    /**
+     * Backward shift deletion: move following entries of the probe chain into
+     * the hole, so lookups never need tombstones.
+     */
+    private void removeAt(int slot) {
+        final int[] keys = mKeys;
+        final int[] values = mValues;
+        final int mask = mMask;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        int key;
+        while ((key = keys[next]) != 0) {
+            int home = mix(key) & mask;
+            // move it if its home is not within (hole, next]
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = key;
+                values[hole] = values[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[hole] = 0;
+        values[hole] = 0;
+        --mSize;
+        ++mModCount;
+    }
+
+    /**
+     * Capacity is kept, call {@link #trimToSize()} to release it.
+     */
+    public void clear() {
+        if (mSize != 0) {
+            Arrays.fill(mKeys, 0);
+            Arrays.fill(mValues, 0);
+            mHasZeroKey = false;
+            mSize = 0;
+            ++mModCount;
+        }
+    }
+
+    public void trimToSize() {
+        int capacity = tableSizeFor((int) Math.ceil(mSize / LOAD_FACTOR));
+        if (capacity < mKeys.length) {
+            rehash(capacity);
+        }
+    }
+
+    // Iterate
+
+    /**
+     * A cursor over the entries, which allocates nothing per entry.
+     * <pre>
+     * IntIntHashMap.Cursor c = map.cursor();
+     * while (c.moveToNext()) {
+     *     use(c.key(), c.value());
+     * }
+     * </pre>
+     * The map must not be structurally modified while iterating. Entries can't
+     * be removed through the cursor, since backward shift deletion would move
+     * wrapped entries across the iteration point.
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    public final class Cursor {
+        /**
+         * -1 is the zero key, then the slots.
+         */
+        private int mSlot = -2;
+        private int mExpectedModCount = mModCount;
+
+        public boolean moveToNext() {
+            checkForComodification();
+            if (mSlot == -2) {
+                mSlot = -1;
+                if (mHasZeroKey) {
+                    return true;
+                }
+            }
+            final int[] keys = mKeys;
+            while (++mSlot < keys.length) {
+                if (keys[mSlot] != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public int key() {
+            checkEntry();
+            return mSlot == -1 ? 0 : mKeys[mSlot];
+        }
+
+        public int value() {
+            checkEntry();
+            return mSlot == -1 ? mZeroValue : mValues[mSlot];
+        }
+
+        public void setValue(int value) {
+            checkEntry();
+            if (mSlot == -1) {
+                mZeroValue = value;
+            } else {
+                mValues[mSlot] = value;
+            }
+        }
+
+        private void checkEntry() {
+            checkForComodification();
+            if (mSlot < -1 || mSlot >= mKeys.length) {
+                throw new NoSuchElementException();
+            }
+        }
+
+        private void checkForComodification() {
+            if (mModCount != mExpectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append('<').append(mSize).append(">: {");
+        Cursor c = cursor();
+        for (int i = 0; i < 1000 && c.moveToNext(); ++i) {
+            sb.append(c.key()).append('=').append(c.value()).append(", ");
+        }
+        return sb.append('}').toString();
+    }
+}
@@ -0,0 +1,319 @@
+package com.bestpractices.base.collection;
+
+import java.util.Arrays;
+
+/**
+ * A one-to-many int index in compressed sparse row layout: the values of all
+ * keys in one int[], grouped by key, and per key the start offset of its
+ * group. Compared with SparseArray&lt;IntArrayList&gt; there are two arrays in
+ * total instead of an object and an array per key.<br/>
+ * Keys are dense non-negative ints, like node ids of a graph. Pairs are
+ * collected by a {@link Builder}, then frozen. Pairs put after freezing go to
+ * an overflow layer, which {@link #compact()} merges back.
+ */
+public class IntMultimap {
+    private static final int NO_ENTRY = -1;
+
+    private int[] mOffsets;
+    private int[] mValues;
+    private int mKeyCount;
+
+    /**
+     * Overflow: per key the last entry, entries are linked backward.
+     */
+    private IntIntHashMap mOverflowLast;
+    private IntArrayList mOverflowValues;
+    private IntArrayList mOverflowPrevious;
+
+    private IntMultimap(int[] offsets, int[] values, int keyCount) {
+        mOffsets = offsets;
+        mValues = values;
+        mKeyCount = keyCount;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Collect pairs in insertion order, then {@link #build()} with a counting
+     * sort, which is O(pairs + keys) and keeps the order of values per key.
+     */
+    public static class Builder {
+        private final IntArrayList mKeys = new IntArrayList();
+        private final IntArrayList mValues = new IntArrayList();
+        private int mKeyCount;
+
+        public Builder put(int key, int value) {
+            if (key < 0) {
+                throw new IllegalArgumentException("negative key " + key);
+            }
+            mKeys.add(key);
+            mValues.add(value);
+            if (key >= mKeyCount) {
+                mKeyCount = key + 1;
+            }
+            return this;
+        }
+
+        /**
+         * Make keys up to keyCount - 1 valid even without values.
+         */
+        public Builder ensureKeyCount(int keyCount) {
+            if (keyCount > mKeyCount) {
+                mKeyCount = keyCount;
+            }
+            return this;
+        }
+
+        public int size() {
+            return mKeys.size();
+        }
+
+        public IntMultimap build() {
+            final int keyCount = mKeyCount;
+            final int size = mKeys.size();
+            final int[] offsets = new int[keyCount + 1];
+
+            // 1) count, offsets[key + 1] is the count of key
+            for (int i = 0; i < size; ++i) {
+                ++offsets[mKeys.get(i) + 1];
+            }
+
+            // 2) prefix sum, offsets[key] is the start of key
+            for (int k = 0; k < keyCount; ++k) {
+                offsets[k + 1] += offsets[k];
+            }
+
+            // 3) place values, cursor[key] is the next free position of key
+            final int[] cursor = Arrays.copyOf(offsets, keyCount);
+            final int[] values = new int[size];
+            for (int i = 0; i < size; ++i) {
+                values[cursor[mKeys.get(i)]++] = mValues.get(i);
+            }
+            return new IntMultimap(offsets, values, keyCount);
+        }
+    }
+
+    // Access
+
+    /**
+     * @return max key + 1
+     */
+    public int keyCount() {
+        int count = mKeyCount;
+        if (mOverflowLast != null) {
+            IntIntHashMap.Cursor c = mOverflowLast.cursor();
+            while (c.moveToNext()) {
+                count = Math.max(count, c.key() + 1);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return number of pairs
+     */
+    public int size() {
+        return mValues.length + (mOverflowValues != null ? mOverflowValues.size() : 0);
+    }
+
+    /**
+     * @return number of values of the key, including the overflow layer
+     */
+    public int countOf(int key) {
+        int count = key >= 0 && key < mKeyCount ? mOffsets[key + 1] - mOffsets[key] : 0;
+        if (mOverflowLast != null) {
+            for (int e = mOverflowLast.get(key, NO_ENTRY); e != NO_ENTRY; e = mOverflowPrevious.get(e)) {
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * O(1) view of the frozen values of the key, without the overflow layer.
+     * The view is invalid after {@link #compact()}.
+     */
+    public Slice valuesOf(int key) {
+        return valuesOf(key, new Slice());
+    }
+
+    /**
+     * Same as {@link #valuesOf(int)}, but reuse the given slice to avoid
+     * allocation in loops.
+     */
+    public Slice valuesOf(int key, Slice reuse) {
+        reuse.mArray = mValues;
+        if (key >= 0 && key < mKeyCount) {
+            reuse.mStart = mOffsets[key];
+            reuse.mEnd = mOffsets[key + 1];
+        } else {
+            reuse.mStart = reuse.mEnd = 0;
+        }
+        return reuse;
+    }
+
+    /**
+     * Visit the frozen values of the key in insertion order, then the
+     * overflow ones in reverse insertion order.
+     */
+    public void forEachValue(int key, IntArrayList.IntProcedure procedure) {
+        if (key >= 0 && key < mKeyCount) {
+            final int[] values = mValues;
+            for (int i = mOffsets[key], end = mOffsets[key + 1]; i < end; ++i) {
+                procedure.apply(values[i]);
+            }
+        }
+        if (mOverflowLast != null) {
+            for (int e = mOverflowLast.get(key, NO_ENTRY); e != NO_ENTRY; e = mOverflowPrevious.get(e)) {
+                procedure.apply(mOverflowValues.get(e));
+            }
+        }
+    }
+
+    public boolean containsEntry(int key, int value) {
+        if (key >= 0 && key < mKeyCount) {
+            final int[] values = mValues;
+            for (int i = mOffsets[key], end = mOffsets[key + 1]; i < end; ++i) {
+                if (values[i] == value) {
+                    return true;
+                }
+            }
+        }
+        if (mOverflowLast != null) {
+            for (int e = mOverflowLast.get(key, NO_ENTRY); e != NO_ENTRY; e = mOverflowPrevious.get(e)) {
+                if (mOverflowValues.get(e) == value) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Overflow
+
+    /**
+     * Add a pair after freezing. It's kept in the overflow layer until
+     * {@link #compact()}.
+     */
+    public void put(int key, int value) {
+        if (key < 0) {
+            throw new IllegalArgumentException("negative key " + key);
+        }
+        if (mOverflowLast == null) {
+            mOverflowLast = new IntIntHashMap();
+            mOverflowValues = new IntArrayList();
+            mOverflowPrevious = new IntArrayList();
+        }
+        int entry = mOverflowValues.size();
+        mOverflowValues.add(value);
+        mOverflowPrevious.add(mOverflowLast.get(key, NO_ENTRY));
+        mOverflowLast.put(key, entry);
+    }
+
+    public boolean hasOverflow() {
+        return mOverflowValues != null && !mOverflowValues.isEmpty();
+    }
+
+    /**
+     * Merge the overflow layer into the frozen arrays, overflow values go
+     * after the frozen ones of the same key in insertion order.
+     */
+    public void compact() {
+        if (!hasOverflow()) {
+            return;
+        }
+
+        final int keyCount = keyCount();
+        final int[] oldOffsets = mOffsets;
+        final int[] oldValues = mValues;
+        final int oldKeyCount = mKeyCount;
+        final int[] offsets = new int[keyCount + 1];
+
+        // 1) count
+        for (int k = 0; k < oldKeyCount; ++k) {
+            offsets[k + 1] = oldOffsets[k + 1] - oldOffsets[k];
+        }
+        IntIntHashMap.Cursor c = mOverflowLast.cursor();
+        while (c.moveToNext()) {
+            for (int e = c.value(); e != NO_ENTRY; e = mOverflowPrevious.get(e)) {
+                ++offsets[c.key() + 1];
+            }
+        }
+
+        // 2) prefix sum
+        for (int k = 0; k < keyCount; ++k) {
+            offsets[k + 1] += offsets[k];
+        }
+
+        // 3) copy frozen values, then fill overflow values backward
+        final int[] values = new int[offsets[keyCount]];
+        for (int k = 0; k < oldKeyCount; ++k) {
+            System.arraycopy(oldValues, oldOffsets[k], values, offsets[k], oldOffsets[k + 1] - oldOffsets[k]);
+        }
+        c = mOverflowLast.cursor();
+        while (c.moveToNext()) {
+            int position = offsets[c.key() + 1];
+            for (int e = c.value(); e != NO_ENTRY; e = mOverflowPrevious.get(e)) {
+                values[--position] = mOverflowValues.get(e);
+            }
+        }
+
+        mOffsets = offsets;
+        mValues = values;
+        mKeyCount = keyCount;
+        mOverflowLast = null;
+        mOverflowValues = null;
+        mOverflowPrevious = null;
+    }
+
+    /**
+     * A read only range of the value array.
+     */
+    public static final class Slice {
+        private int[] mArray;
+        private int mStart;
+        private int mEnd;
+
+        public int size() {
+            return mEnd - mStart;
+        }
+
+        public boolean isEmpty() {
+            return mEnd == mStart;
+        }
+
+        public int get(int index) {
+            if (index < 0 || index >= mEnd - mStart) {
+                throw new IndexOutOfBoundsException("Invalid index " + index + ", size is " + (mEnd - mStart));
+            }
+            return mArray[mStart + index];
+        }
+
+        /**
+         * The shared backing array, for loops from {@link #start()} to
+         * {@link #end()} without bounds check. Must not be modified.
+         */
+        public int[] array() {
+            return mArray;
+        }
+
+        public int start() {
+            return mStart;
+        }
+
+        public int end() {
+            return mEnd;
+        }
+
+        public int[] toArray() {
+            return Arrays.copyOfRange(mArray, mStart, mEnd);
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(toArray());
+        }
+    }
+}
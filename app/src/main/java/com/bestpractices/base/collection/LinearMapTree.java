@@ -25,12 +25,17 @@ public abstract class LinearMapTree<E extends LinearMapTree<E>> extends LinkedTr
         IntArrayList list = mPosList;
         int index;
         while (curr != null) {
-            index = list.binarySearch(position);
-            if (index >= 0) {
+            if (list == null || list.isEmpty()) {
+                // placeholder of a loading subtree
+                return null;
+            }
+            // last child starting at or before position
+            index = list.upperBound(position) - 1;
+            int childPosition = list.get(index);
+            if (childPosition == position) {
                 return curr.mChildren.get(index);
             } else {
-                index = -index - 2;
-                position -= list.get(index);
+                position -= childPosition;
                 curr = curr.mChildren.get(index);
                 list = curr.mPosList;
             }
@@ -71,16 +76,29 @@ public abstract class LinearMapTree<E extends LinearMapTree<E>> extends LinkedTr
 
     public void fold(boolean toFold) {
         if (mIsFolded != toFold) {
+            // 0) show placeholders until lazy children loaded
+            boolean toLoad = !toFold && mLazyState == LAZY_STATE_UNLOADED;
+            if (toLoad) {
+                mLazyState = LAZY_STATE_LOADING;
+                mPlaceholderCount = mEstimatedCount;
+                mActualNodeCount += mPlaceholderCount;
+            }
+
             // 1) update tree if needed
             if (mParent != null) {
                 int change = mActualNodeCount - 1;
-                updateTreeNodesInfo(mParent, mParent.mChildren.indexOf(this), toFold ? -change : change);
+                updateTreeNodesInfo(mParent, mIndexInParent, toFold ? -change : change);
             }
 
             // 2) ensure unfolded before notify change
             mIsFolded = false;
             onLinearChanged(toFold ? CHANGE_TYPE_FOLD : CHANGE_TYPE_UNFOLD, 1, mActualNodeCount - 1);
             mIsFolded = toFold;
+
+            // 3) start loading after tree updated
+            if (toLoad) {
+                mLoader.load((E) this);
+            }
         }
     }
 
@@ -88,6 +106,117 @@ public abstract class LinearMapTree<E extends LinearMapTree<E>> extends LinkedTr
         return mIsFolded;
     }
 
+    // Lazy
+
+    public static final int LAZY_STATE_NONE = 0;
+    public static final int LAZY_STATE_UNLOADED = 1;
+    public static final int LAZY_STATE_LOADING = 2;
+    public static final int LAZY_STATE_LOADED = 3;
+
+    private ChildrenLoader<E> mLoader;
+    private int mLazyState = LAZY_STATE_NONE;
+    private int mEstimatedCount;
+    private int mPlaceholderCount;
+
+    /**
+     * Make this node load its children through loader when it's first
+     * unfolded. Until {@link #onChildrenLoaded(Collection)} is called, the
+     * subtree occupies estimatedCount placeholder positions, for which
+     * {@link #get(int)} returns null.<br/>
+     * Must be called before the node has children, and it will fold the node.
+     */
+    public void setLazy(ChildrenLoader<E> loader, int estimatedCount) {
+        Assert.r(loader != null);
+        Assert.r(estimatedCount >= 0);
+        Assert.r(childCount() == 0 && mLazyState == LAZY_STATE_NONE);
+
+        fold(true);
+        mLoader = loader;
+        mEstimatedCount = estimatedCount;
+        mLazyState = LAZY_STATE_UNLOADED;
+    }
+
+    public final int lazyState() {
+        return mLazyState;
+    }
+
+    final ChildrenLoader<E> loader() {
+        return mLoader;
+    }
+
+    /**
+     * Replace the placeholders with the loaded children. Must be called on
+     * the thread owning the tree. Results arriving after {@link #unload()}
+     * are dropped.
+     */
+    public void onChildrenLoaded(Collection<E> children) {
+        if (mLazyState != LAZY_STATE_LOADING) {
+            return;
+        }
+        mLazyState = LAZY_STATE_LOADED;
+
+        // 1) remove placeholders
+        int placeholderCount = mPlaceholderCount;
+        mPlaceholderCount = 0;
+        ensureChildren();
+        updateTreeNodesInfo((E) this, -1, -placeholderCount);
+        if (placeholderCount > 0 && !isFolded()) {
+            onLinearChanged(CHANGE_TYPE_REMOVE, 1, placeholderCount);
+        }
+
+        // 2) add real children
+        if (children != null && !children.isEmpty()) {
+            add(0, children);
+        }
+    }
+
+    /**
+     * Drop the children of a folded lazy node, so they will be loaded again
+     * on next unfold.
+     *
+     * @return true if evicted
+     */
+    public boolean unload() {
+        if (!isFolded() || mLazyState == LAZY_STATE_NONE || mLazyState == LAZY_STATE_UNLOADED) {
+            return false;
+        }
+
+        // folded, so nothing above need to be updated
+        clear();
+        mPlaceholderCount = 0;
+        mActualNodeCount = 1;
+        mLazyState = LAZY_STATE_UNLOADED;
+        return true;
+    }
+
+    /**
+     * Unload all folded lazy subtrees under this node, call it under memory
+     * pressure.
+     *
+     * @return count of evicted subtrees
+     */
+    public int evictFolded() {
+        int evicted = 0;
+        for (int i = 0, size = childCount(); i < size; ++i) {
+            E child = mChildren.get(i);
+            if (child.unload()) {
+                ++evicted;
+            } else {
+                evicted += child.evictFolded();
+            }
+        }
+        return evicted;
+    }
+
+    public static interface ChildrenLoader<E extends LinearMapTree<E>> {
+        /**
+         * Load children of node asynchronously, then deliver them with
+         * {@link LinearMapTree#onChildrenLoaded(Collection)} on the thread
+         * owning the tree.
+         */
+        void load(E node);
+    }
+
     // Add
 
     @Override
@@ -107,14 +236,16 @@ public abstract class LinearMapTree<E extends LinearMapTree<E>> extends LinkedTr
         E thisNode = super.add(index, collection);
 
         int addedNodeCount = 0;
-        int i = index;
+        int i = 0;
         int localPos = index == 0 ? 1 : (mPosList.get(index - 1) + mChildren.get(index - 1).nodeCount());
         int pos = localPos;
+        int[] positions = new int[collection.size()];
         for (E child : collection) {
-            mPosList.add(i++, pos);
+            positions[i++] = pos;
             addedNodeCount += child.nodeCount();
             pos += child.nodeCount();
         }
+        mPosList.insertAll(index, positions, 0, positions.length);
         updateTreeNodesInfo(thisNode, index + collection.size() - 1, addedNodeCount);
 
         onLinearChanged(CHANGE_TYPE_ADD, localPos, addedNodeCount);
@@ -162,7 +293,8 @@ public abstract class LinearMapTree<E extends LinearMapTree<E>> extends LinkedTr
         if (fromStartIndex > fromEndIndex) {
             return;
         }
-        if (fromParent == toParent && fromStartIndex == toStartIndex) {
+        if (fromParent == toParent && toStartIndex >= fromStartIndex && toStartIndex <= fromEndIndex + 1) {
+            // inside or right after itself, no move, like CollectionHelper.move()
             return;
         }
 
@@ -233,12 +365,15 @@ public abstract class LinearMapTree<E extends LinearMapTree<E>> extends LinkedTr
             startIndex -= fromEndIndex - fromStartIndex + 1;
         }
         list = toParent.mPosList;
-        int pos = startIndex == 0 ? 1 : (list.get(startIndex - 1) + toParent.mChildren.get(startIndex - 1).nodeCount());
+        // children are not moved yet, the one before the target is still at toStartIndex - 1
+        int pos = startIndex == 0 ? 1 : (list.get(startIndex - 1) + toParent.mChildren.get(toStartIndex - 1).nodeCount());
         ArrayList<E> children = fromParent.mChildren;
-        for (int i = fromStartIndex, j = startIndex; i <= fromEndIndex; ++i, ++j) {
-            list.add(j, pos);
+        int[] positions = new int[fromEndIndex - fromStartIndex + 1];
+        for (int i = fromStartIndex, j = 0; i <= fromEndIndex; ++i, ++j) {
+            positions[j] = pos;
             pos += children.get(i).nodeCount();
         }
+        list.insertAll(startIndex, positions, 0, positions.length);
 
         // 6) do move
         super.move(fromParent, fromStartIndex, fromEndIndex, toParent, toStartIndex);
@@ -247,6 +382,26 @@ public abstract class LinearMapTree<E extends LinearMapTree<E>> extends LinkedTr
         onLinearChanged(CHANGE_TYPE_MOVE, fromStartPos, fromEndPos, toStartPos, toEndPos);
     }
 
+    /**
+     * Linear position of node in this tree that can be passed to
+     * {@link #get(int)}, or {@link #INVALID_POSITION} if node is not in this
+     * tree or is hidden by a folded ancestor. O(depth).
+     */
+    public final int positionOf(E node) {
+        int pos = 0;
+        E curr = node;
+        E parent;
+        while (curr != this) {
+            parent = curr.mParent;
+            if (parent == null || parent.isFolded()) {
+                return INVALID_POSITION;
+            }
+            pos += parent.mPosList.get(curr.mIndexInParent);
+            curr = parent;
+        }
+        return pos > 0 ? pos - 1 : INVALID_POSITION;
+    }
+
     private static <E extends LinearMapTree<E>> int findPosition(E root, E parent, int localPos) {
         while (true) {
             if (parent.isFolded()) {
@@ -256,7 +411,7 @@ public abstract class LinearMapTree<E extends LinearMapTree<E>> extends LinkedTr
             if (parent.mParent == null) {
                 break;
             }
-            localPos += parent.mParent.mPosList.get(parent.mParent.mChildren.indexOf(parent));
+            localPos += parent.mParent.mPosList.get(parent.mIndexInParent);
             parent = parent.mParent;
         }
         return localPos;
@@ -315,9 +470,7 @@ public abstract class LinearMapTree<E extends LinearMapTree<E>> extends LinkedTr
         while (parent != null && parent != nodeCountEffectBound) {
             // 1) update pos list
             list = parent.mPosList;
-            for (int i = list.size() - 1; i > childIndex; --i) {
-                list.offset(i, change);
-            }
+            list.offsetRange(childIndex + 1, list.size(), change);
 
             // 2) update node count
             parent.mActualNodeCount += change;
@@ -329,7 +482,7 @@ public abstract class LinearMapTree<E extends LinearMapTree<E>> extends LinkedTr
 
             // 4) go up
             if (parent.mParent != null) {
-                childIndex = parent.mParent.mChildren.indexOf(parent);
+                childIndex = parent.mIndexInParent;
             }
             parent = parent.mParent;
         }
@@ -0,0 +1,319 @@
+package com.bestpractices.base.collection;
+
+import com.bestpractices.base.Assert;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Compact binary snapshot of a {@link LinearMapTree}. Nodes are written in
+ * pre-order, each as:
+ * <ol>
+ * <li>varint (childCount << 1 | foldBit)</li>
+ * <li>payload written by {@link NodeCodec}</li>
+ * <li>int32 byte length of its children records, only for folded nodes with
+ * children, so that a reader can skip them</li>
+ * </ol>
+ * {@link #read(ByteBuffer)} rebuilds the whole tree in one sequential pass,
+ * {@link #readLazy(ByteBuffer)} only decodes visible nodes and leaves folded
+ * subtrees lazy (see {@link LinearMapTree#setLazy}) until they are unfolded,
+ * which works best on a buffer from {@link #map(String)}.<br/>
+ * Lazy subtrees read by this codec which are not loaded yet are written by
+ * copying their records from the source buffer.
+ */
+public class LinearMapTreeCodec<E extends LinearMapTree<E>> {
+    private static final int MAGIC = 0x4c4d5431; // "LMT1"
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final NodeCodec<E> mNodeCodec;
+
+    public LinearMapTreeCodec(NodeCodec<E> nodeCodec) {
+        Assert.r(nodeCodec != null);
+
+        mNodeCodec = nodeCodec;
+    }
+
+    // Write
+
+    public void write(E root, OutputStream stream) throws IOException {
+        Output out = encode(root);
+        stream.write(out.mBuffer, 0, out.mSize);
+    }
+
+    public Output encode(E root) {
+        Output out = new Output(Math.max(64, root.mActualNodeCount * 8));
+        out.writeInt(MAGIC);
+        writeNode(root, out);
+        return out;
+    }
+
+    private void writeNode(E node, Output out) {
+        int lazyState = node.lazyState();
+        if (lazyState == LinearMapTree.LAZY_STATE_UNLOADED || lazyState == LinearMapTree.LAZY_STATE_LOADING) {
+            writeUnloadedNode(node, out);
+            return;
+        }
+
+        int childCount = node.childCount();
+        boolean folded = node.isFolded();
+        out.writeVarInt(childCount << 1 | (folded ? 1 : 0));
+        mNodeCodec.write(node, out);
+
+        if (childCount == 0) {
+            return;
+        }
+
+        int lengthOffset = -1;
+        if (folded) {
+            lengthOffset = out.mSize;
+            out.writeInt(0);
+        }
+        for (int i = 0; i < childCount; ++i) {
+            writeNode(node.mChildren.get(i), out);
+        }
+        if (folded) {
+            out.setInt(lengthOffset, out.mSize - lengthOffset - 4);
+        }
+    }
+
+    /**
+     * The children of node are still encoded in the source buffer, copy them
+     * as is.
+     *
+     * @throws IllegalStateException if not loaded by this codec
+     */
+    @SuppressWarnings("unchecked")
+    private void writeUnloadedNode(E node, Output out) {
+        LinearMapTree.ChildrenLoader<E> loader = node.loader();
+        if (!(loader instanceof SubtreeLoader) || ((SubtreeLoader<E>) loader).mCodec.mNodeCodec != mNodeCodec) {
+            throw new IllegalStateException("can't write a lazy subtree which is not loaded: " + node);
+        }
+        SubtreeLoader<E> subtree = (SubtreeLoader<E>) loader;
+
+        boolean folded = node.isFolded();
+        out.writeVarInt(subtree.mChildCount << 1 | (folded ? 1 : 0));
+        mNodeCodec.write(node, out);
+        if (folded) {
+            out.writeInt(subtree.mLength);
+        }
+        out.writeBytes(subtree.mBuffer, subtree.mOffset, subtree.mLength);
+    }
+
+    // Read
+
+    /**
+     * Rebuild the whole tree in one pass.
+     */
+    public E read(ByteBuffer buffer) {
+        return readRoot(buffer, false);
+    }
+
+    /**
+     * Rebuild visible nodes only, folded subtrees are decoded from buffer when
+     * unfolded, so buffer must be kept unchanged while the tree is in use.
+     */
+    public E readLazy(ByteBuffer buffer) {
+        return readRoot(buffer, true);
+    }
+
+    private E readRoot(ByteBuffer buffer, boolean lazy) {
+        ByteBuffer in = buffer.duplicate();
+        if (in.getInt() != MAGIC) {
+            throw new IllegalArgumentException("not a tree snapshot");
+        }
+        return readNode(in, lazy);
+    }
+
+    private E readNode(ByteBuffer in, boolean lazy) {
+        int header = readVarInt(in);
+        int childCount = header >>> 1;
+        boolean folded = (header & 1) != 0;
+        E node = mNodeCodec.read(in);
+
+        if (folded && childCount > 0) {
+            int length = in.getInt();
+            if (lazy) {
+                node.setLazy(new SubtreeLoader<E>(this, in, in.position(), length, childCount), childCount);
+                in.position(in.position() + length);
+                return node;
+            }
+        }
+
+        if (childCount > 0) {
+            node.add(0, readChildren(in, childCount, lazy));
+        }
+        if (folded) {
+            node.fold(true);
+        }
+        return node;
+    }
+
+    private ArrayList<E> readChildren(ByteBuffer in, int childCount, boolean lazy) {
+        ArrayList<E> children = new ArrayList<E>(childCount);
+        for (int i = 0; i < childCount; ++i) {
+            children.add(readNode(in, lazy));
+        }
+        return children;
+    }
+
+    private static class SubtreeLoader<E extends LinearMapTree<E>> implements LinearMapTree.ChildrenLoader<E> {
+        private final LinearMapTreeCodec<E> mCodec;
+        private final ByteBuffer mBuffer;
+        private final int mOffset;
+        private final int mLength;
+        private final int mChildCount;
+
+        SubtreeLoader(LinearMapTreeCodec<E> codec, ByteBuffer buffer, int offset, int length, int childCount) {
+            mCodec = codec;
+            mBuffer = buffer;
+            mOffset = offset;
+            mLength = length;
+            mChildCount = childCount;
+        }
+
+        @Override
+        public void load(E node) {
+            // decoding from a mapped buffer is cheap, so do it in place
+            ByteBuffer in = mBuffer.duplicate();
+            in.position(mOffset);
+            node.onChildrenLoaded(mCodec.readChildren(in, mChildCount, true));
+        }
+    }
+
+    /**
+     * Map a snapshot file read-only, the mapping stays valid until it's
+     * garbage collected.
+     */
+    public static ByteBuffer map(String path) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(path, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            file.close();
+        }
+    }
+
+    // Primitives
+
+    /**
+     * Unsigned LEB128.
+     */
+    public static int readVarInt(ByteBuffer in) {
+        int value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.get();
+            value |= (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    public static String readString(ByteBuffer in) {
+        int length = readVarInt(in);
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    /**
+     * A growable byte buffer for {@link NodeCodec#write}.
+     */
+    public static class Output {
+        private byte[] mBuffer;
+        private int mSize;
+
+        Output(int capacity) {
+            mBuffer = new byte[capacity];
+        }
+
+        private void ensureCapacity(int extra) {
+            if (mSize + extra > mBuffer.length) {
+                mBuffer = Arrays.copyOf(mBuffer, Math.max(mSize + extra, mBuffer.length + (mBuffer.length >> 1)));
+            }
+        }
+
+        public void writeByte(int value) {
+            ensureCapacity(1);
+            mBuffer[mSize++] = (byte) value;
+        }
+
+        public void writeBytes(byte[] bytes, int offset, int length) {
+            ensureCapacity(length);
+            System.arraycopy(bytes, offset, mBuffer, mSize, length);
+            mSize += length;
+        }
+
+        private void writeBytes(ByteBuffer bytes, int offset, int length) {
+            ensureCapacity(length);
+            ByteBuffer in = bytes.duplicate();
+            in.position(offset);
+            in.get(mBuffer, mSize, length);
+            mSize += length;
+        }
+
+        public void writeInt(int value) {
+            ensureCapacity(4);
+            setInt(mSize, value);
+            mSize += 4;
+        }
+
+        /**
+         * Unsigned LEB128.
+         */
+        public void writeVarInt(int value) {
+            ensureCapacity(5);
+            byte[] buffer = mBuffer;
+            int size = mSize;
+            while ((value & ~0x7f) != 0) {
+                buffer[size++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+            mSize = size;
+        }
+
+        public void writeString(String value) {
+            byte[] bytes = value.getBytes(UTF_8);
+            writeVarInt(bytes.length);
+            writeBytes(bytes, 0, bytes.length);
+        }
+
+        public int size() {
+            return mSize;
+        }
+
+        public byte[] toByteArray() {
+            return Arrays.copyOf(mBuffer, mSize);
+        }
+
+        /**
+         * Big endian, same as {@link ByteBuffer#getInt()}.
+         */
+        private void setInt(int offset, int value) {
+            byte[] buffer = mBuffer;
+            buffer[offset] = (byte) (value >>> 24);
+            buffer[offset + 1] = (byte) (value >>> 16);
+            buffer[offset + 2] = (byte) (value >>> 8);
+            buffer[offset + 3] = (byte) value;
+        }
+    }
+
+    /**
+     * Write and read the payload of a single node, without its children.
+     */
+    public static interface NodeCodec<E> {
+        void write(E node, Output out);
+
+        E read(ByteBuffer in);
+    }
+}
@@ -6,6 +6,8 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
 
 @SuppressWarnings("unchecked")
 public abstract class LinkedTree<E extends LinkedTree<E>> {
@@ -14,10 +16,20 @@ public abstract class LinkedTree<E extends LinkedTree<E>> {
     protected E mParent;
     protected ArrayList<E> mChildren;
 
+    /**
+     * Index of this node in parent's children, kept in sync by every mutation
+     * so that walking up the tree needs no {@link ArrayList#indexOf(Object)}.
+     */
+    int mIndexInParent = -1;
+
     public final E parent() {
         return mParent;
     }
 
+    public final int indexInParent() {
+        return mIndexInParent;
+    }
+
     public final int childCount() {
         return mChildren != null ? mChildren.size() : 0;
     }
@@ -51,6 +63,8 @@ public abstract class LinkedTree<E extends LinkedTree<E>> {
         E thisNode = (E) this;
         ensureChildren().add(index, child);
         child.mParent = thisNode;
+        reindexChildren(index);
+        attachKeyIndex(child);
         return thisNode;
     }
 
@@ -60,7 +74,9 @@ public abstract class LinkedTree<E extends LinkedTree<E>> {
         for (E child : collection) {
             Assert.r(child != null);
             child.mParent = thisNode;
+            attachKeyIndex(child);
         }
+        reindexChildren(index);
 
         return thisNode;
     }
@@ -80,9 +96,15 @@ public abstract class LinkedTree<E extends LinkedTree<E>> {
 
     public void remove(int startIndex, int endIndex) {
         ArrayList<E> children = mChildren;
+        E child;
         for (int i = endIndex; i >= startIndex; --i) {
-            children.remove(i).mParent = null;
+            child = children.get(i);
+            child.mParent = null;
+            child.mIndexInParent = -1;
+            detachKeyIndex(child);
         }
+        CollectionHelper.removeRange(children, startIndex, endIndex + 1);
+        reindexChildren(startIndex);
     }
 
     // Move
@@ -110,32 +132,33 @@ public abstract class LinkedTree<E extends LinkedTree<E>> {
 
     /**
      * <li>Move will do add before remove</li><br/>
-     * <li>FromParent and ToParent must belong to this sub-tree</li>
+     * <li>FromParent and ToParent must belong to this sub-tree</li><br/>
+     * <li>Key index needs no update as moved nodes stay in the same tree</li>
      */
     public void move(E fromParent, int fromStartIndex, int fromEndIndex, E toParent, int toIndex) {
-        if (fromParent == toParent && fromStartIndex == toIndex) {
+        if (fromParent == toParent && toIndex >= fromStartIndex && toIndex <= fromEndIndex + 1) {
             return;
         }
 
-        E child;
         ArrayList<E> fromChildren = fromParent.mChildren;
         ArrayList<E> toChildren = toParent.mChildren;
-        if (fromChildren == toChildren && fromStartIndex > toIndex) {
-            ArrayList<E> tmp = new ArrayList<E>();
-            for (int i = fromStartIndex; i <= fromEndIndex; ++i) {
-                child = fromChildren.get(i);
-                child.mParent = toParent;
-                tmp.add(child);
-            }
-            CollectionHelper.removeRange(fromParent.mChildren, fromStartIndex, fromEndIndex + 1);
-            toChildren.addAll(toIndex, tmp);
+        if (fromChildren == toChildren) {
+            // in place, parents are unchanged
+            CollectionHelper.move(fromChildren, fromStartIndex, fromEndIndex, toIndex);
         } else {
-            for (int i = fromStartIndex, j = toIndex; i <= fromEndIndex; ++i, ++j) {
-                child = fromChildren.get(i);
-                child.mParent = toParent;
-                toChildren.add(j, child);
+            List<E> moved = fromChildren.subList(fromStartIndex, fromEndIndex + 1);
+            for (int i = 0, size = moved.size(); i < size; ++i) {
+                moved.get(i).mParent = toParent;
             }
-            CollectionHelper.removeRange(fromChildren, fromStartIndex, fromEndIndex + 1);
+            toChildren.addAll(toIndex, moved);
+            moved.clear();
+        }
+
+        if (fromParent == toParent) {
+            fromParent.reindexChildren(Math.min(fromStartIndex, toIndex));
+        } else {
+            fromParent.reindexChildren(fromStartIndex);
+            toParent.reindexChildren(toIndex);
         }
     }
 
@@ -148,9 +171,13 @@ public abstract class LinkedTree<E extends LinkedTree<E>> {
         if (oldChild != child) {
             if (oldChild != null) {
                 oldChild.mParent = null;
+                oldChild.mIndexInParent = -1;
+                detachKeyIndex(oldChild);
             }
             mChildren.set(index, child);
             child.mParent = (E) this;
+            child.mIndexInParent = index;
+            attachKeyIndex(child);
         }
     }
 
@@ -160,6 +187,8 @@ public abstract class LinkedTree<E extends LinkedTree<E>> {
         if (!CollectionHelper.isEmpty(mChildren)) {
             for (E node : mChildren) {
                 node.mParent = null;
+                node.mIndexInParent = -1;
+                detachKeyIndex(node);
             }
             mChildren.clear();
         }
@@ -170,6 +199,91 @@ public abstract class LinkedTree<E extends LinkedTree<E>> {
     public void sort(Comparator<E> cmp) {
         if (!CollectionHelper.isEmpty(mChildren)) {
             Collections.sort(mChildren, cmp);
+            reindexChildren(0);
+        }
+    }
+
+    void reindexChildren(int fromIndex) {
+        ArrayList<E> children = mChildren;
+        for (int i = fromIndex, size = children.size(); i < size; ++i) {
+            children.get(i).mIndexInParent = i;
+        }
+    }
+
+    // Key Index
+
+    /**
+     * Shared by all nodes of a tree once {@link #enableKeyIndex()} is called
+     * on the root.
+     */
+    HashMap<Object, E> mKeyIndex;
+
+    /**
+     * Key of this node for the key index, null means not indexed. It must not
+     * change while the node is in an indexed tree.
+     */
+    protected Object key() {
+        return null;
+    }
+
+    /**
+     * Build a key -> node index for this tree, which is then kept in sync by
+     * add/remove/set/move/clear. Must be called on the root.
+     */
+    public final void enableKeyIndex() {
+        Assert.r(mParent == null);
+
+        if (mKeyIndex == null) {
+            setKeyIndex((E) this, new HashMap<Object, E>());
+        }
+    }
+
+    public final boolean isKeyIndexEnabled() {
+        return mKeyIndex != null;
+    }
+
+    /**
+     * O(1) lookup of a node in this tree by {@link #key()}.
+     */
+    public final E findByKey(Object key) {
+        Assert.r(mKeyIndex != null, "key index not enabled");
+
+        return mKeyIndex.get(key);
+    }
+
+    private void attachKeyIndex(E child) {
+        if (mKeyIndex != null) {
+            setKeyIndex(child, mKeyIndex);
+        }
+    }
+
+    private void detachKeyIndex(E child) {
+        if (child.mKeyIndex != null) {
+            setKeyIndex(child, null);
+        }
+    }
+
+    /**
+     * Register (index != null) or unregister (index == null) a whole subtree.
+     */
+    private static <E extends LinkedTree<E>> void setKeyIndex(E node, HashMap<Object, E> index) {
+        HashMap<Object, E> oldIndex = node.mKeyIndex;
+        node.mKeyIndex = index;
+
+        Object key = node.key();
+        if (key != null) {
+            if (index != null) {
+                index.put(key, node);
+            } else if (oldIndex.get(key) == node) {
+                oldIndex.remove(key);
+            }
+        }
+
+        ArrayList<E> children = node.mChildren;
+        if (children != null) {
+            for (int i = 0, size = children.size(); i < size; ++i) {
+                setKeyIndex(children.get(i), index);
+            }
         }
     }
 }
\ No newline at end of file
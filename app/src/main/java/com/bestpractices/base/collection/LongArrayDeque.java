@@ -0,0 +1,276 @@
+package com.bestpractices.base.collection;
+
+import java.util.NoSuchElementException;
+
+/**
+ * A long deque with the power-of-two circular buffer of
+ * {@link ArrayDequeCompat}, so BFS queues and sliding windows don't box
+ * elements. Once the buffer has grown to the working size, no operation
+ * allocates.<br/>
+ * Not thread-safe.
+ */
+public class LongArrayDeque {
+    /**
+     * Capacity is always a power of two, and the array is never full
+     * except transiently within an addX method.
+     */
+    private long[] elements;
+
+    /**
+     * The index of the first element; or equal to tail if empty.
+     */
+    private int head;
+
+    /**
+     * The index at which the next element would be added to the tail.
+     */
+    private int tail;
+
+    private static final int MIN_INITIAL_CAPACITY = 8;
+
+    public LongArrayDeque() {
+        elements = new long[16];
+    }
+
+    /**
+     * @param numElements lower bound on initial capacity of the deque
+     */
+    public LongArrayDeque(int numElements) {
+        elements = new long[capacityFor(numElements)];
+    }
+
+    private static int capacityFor(int numElements) {
+        // Tests "<=" because arrays aren't kept full.
+        if (numElements < MIN_INITIAL_CAPACITY) {
+            return MIN_INITIAL_CAPACITY;
+        }
+        int capacity = Integer.highestOneBit(numElements) << 1;
+        if (capacity < 0) {
+            throw new IllegalStateException("Sorry, deque too big");
+        }
+        return capacity;
+    }
+
+    private void resize(int newCapacity) {
+        if (newCapacity < 0) {
+            throw new IllegalStateException("Sorry, deque too big");
+        }
+        int n = size();
+        long[] a = new long[newCapacity];
+        copyElements(a);
+        elements = a;
+        head = 0;
+        tail = n;
+    }
+
+    /**
+     * Copy elements in order from first to last into a.
+     */
+    private void copyElements(long[] a) {
+        if (head < tail) {
+            System.arraycopy(elements, head, a, 0, tail - head);
+        } else if (head > tail) {
+            int headPortionLen = elements.length - head;
+            System.arraycopy(elements, head, a, 0, headPortionLen);
+            System.arraycopy(elements, 0, a, headPortionLen, tail);
+        }
+    }
+
+    // Add
+
+    public void addFirst(long e) {
+        elements[head = (head - 1) & (elements.length - 1)] = e;
+        if (head == tail) {
+            doubleCapacity();
+        }
+    }
+
+    public void addLast(long e) {
+        elements[tail] = e;
+        if ((tail = (tail + 1) & (elements.length - 1)) == head) {
+            doubleCapacity();
+        }
+    }
+
+    /**
+     * Double the capacity, call only when head and tail have wrapped
+     * around to become equal.
+     */
+    private void doubleCapacity() {
+        int p = head;
+        int n = elements.length;
+        int r = n - p;
+        int newCapacity = n << 1;
+        if (newCapacity < 0) {
+            throw new IllegalStateException("Sorry, deque too big");
+        }
+        long[] a = new long[newCapacity];
+        System.arraycopy(elements, p, a, 0, r);
+        System.arraycopy(elements, 0, a, r, p);
+        elements = a;
+        head = 0;
+        tail = n;
+    }
+
+    /**
+     * Append values[offset, offset + length) at the tail with at most two
+     * array copies.
+     */
+    public void addAll(long[] values, int offset, int length) {
+        if ((offset | length) < 0 || offset > values.length - length) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", array length " + values.length);
+        }
+        int needed = size() + length;
+        if (needed >= elements.length) {
+            resize(capacityFor(needed));
+        }
+        int firstPart = Math.min(length, elements.length - tail);
+        System.arraycopy(values, offset, elements, tail, firstPart);
+        System.arraycopy(values, offset + firstPart, elements, 0, length - firstPart);
+        tail = (tail + length) & (elements.length - 1);
+    }
+
+    public void addAll(long[] values) {
+        addAll(values, 0, values.length);
+    }
+
+    // Remove
+
+    public long pollFirst(long valueIfEmpty) {
+        int h = head;
+        if (h == tail) {
+            return valueIfEmpty;
+        }
+        long result = elements[h];
+        head = (h + 1) & (elements.length - 1);
+        return result;
+    }
+
+    public long pollLast(long valueIfEmpty) {
+        if (head == tail) {
+            return valueIfEmpty;
+        }
+        int t = (tail - 1) & (elements.length - 1);
+        tail = t;
+        return elements[t];
+    }
+
+    /**
+     * @throws NoSuchElementException if this deque is empty
+     */
+    public long removeFirst() {
+        if (head == tail) {
+            throw new NoSuchElementException();
+        }
+        return pollFirst(0);
+    }
+
+    /**
+     * @throws NoSuchElementException if this deque is empty
+     */
+    public long removeLast() {
+        if (head == tail) {
+            throw new NoSuchElementException();
+        }
+        return pollLast(0);
+    }
+
+    /**
+     * Move all elements from first to last into list.
+     *
+     * @return number of elements moved
+     */
+    public int drainTo(LongArrayList list) {
+        return drainTo(list, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Move at most maxElements elements from the head into list.
+     *
+     * @return number of elements moved
+     */
+    public int drainTo(LongArrayList list, int maxElements) {
+        int n = Math.min(size(), maxElements);
+        if (n <= 0) {
+            return 0;
+        }
+        int firstPart = Math.min(n, elements.length - head);
+        list.addAll(elements, head, firstPart);
+        list.addAll(elements, 0, n - firstPart);
+        head = (head + n) & (elements.length - 1);
+        return n;
+    }
+
+    /**
+     * O(1), elements are not cleared.
+     */
+    public void clear() {
+        head = tail = 0;
+    }
+
+    // Access
+
+    public long peekFirst(long valueIfEmpty) {
+        return head == tail ? valueIfEmpty : elements[head];
+    }
+
+    public long peekLast(long valueIfEmpty) {
+        return head == tail ? valueIfEmpty : elements[(tail - 1) & (elements.length - 1)];
+    }
+
+    /**
+     * @throws NoSuchElementException if this deque is empty
+     */
+    public long getFirst() {
+        if (head == tail) {
+            throw new NoSuchElementException();
+        }
+        return elements[head];
+    }
+
+    /**
+     * @throws NoSuchElementException if this deque is empty
+     */
+    public long getLast() {
+        if (head == tail) {
+            throw new NoSuchElementException();
+        }
+        return elements[(tail - 1) & (elements.length - 1)];
+    }
+
+    /**
+     * @param index 0 is the first element
+     */
+    public long get(int index) {
+        int size = size();
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Invalid index " + index + ", size is " + size);
+        }
+        return elements[(head + index) & (elements.length - 1)];
+    }
+
+    public int size() {
+        return (tail - head) & (elements.length - 1);
+    }
+
+    public boolean isEmpty() {
+        return head == tail;
+    }
+
+    public long[] toArray() {
+        long[] a = new long[size()];
+        copyElements(a);
+        return a;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        int size = size();
+        sb.append('<').append(size).append(">: ");
+        for (int i = 0, end = Math.min(size, 1000); i < end; ++i) {
+            sb.append(get(i)).append(", ");
+        }
+        return sb.toString();
+    }
+}
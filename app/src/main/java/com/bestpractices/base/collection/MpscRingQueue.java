@@ -0,0 +1,154 @@
+package com.bestpractices.base.collection;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded lock-free queue for any number of producer threads and one
+ * consumer thread, e.g. posting work from a pool of I/O threads to the main
+ * thread.<br/>
+ * Producers claim a slot by CAS on the tail sequence, then publish the
+ * element into it. The consumer takes the element at the head once it's
+ * published, so a slot claimed but not yet written holds the consumer back
+ * briefly. Null elements are prohibited.
+ *
+ * @see SpscRingQueue
+ */
+public class MpscRingQueue<E> {
+    private final AtomicReferenceArray<E> mBuffer;
+    private final int mCapacity;
+    private final int mMask;
+
+    /**
+     * Written by the consumer only.
+     */
+    private final SpscRingQueue.Sequence mHead = new SpscRingQueue.Sequence();
+
+    /**
+     * Claimed by producers, cache is the last read head + capacity, shared
+     * by producers so they rarely read the head.
+     */
+    private final SpscRingQueue.Sequence mTail = new SpscRingQueue.Sequence();
+    private volatile long mProducerLimit;
+
+    /**
+     * @param capacity rounded up to a power of two
+     */
+    public MpscRingQueue(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity " + capacity);
+        }
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        mBuffer = new AtomicReferenceArray<E>(size);
+        mCapacity = size;
+        mMask = size - 1;
+        mProducerLimit = size;
+    }
+
+    public int capacity() {
+        return mCapacity;
+    }
+
+    // Producers
+
+    /**
+     * Any thread.
+     *
+     * @return false if the queue is full
+     */
+    public boolean offer(E e) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        final SpscRingQueue.Sequence tail = mTail;
+        long t;
+        do {
+            t = tail.get();
+            if (t >= mProducerLimit) {
+                long limit = mHead.get() + mCapacity;
+                if (t >= limit) {
+                    return false;
+                }
+                mProducerLimit = limit;
+            }
+        } while (!tail.compareAndSet(t, t + 1));
+
+        // the slot is claimed, publish
+        mBuffer.lazySet((int) t & mMask, e);
+        return true;
+    }
+
+    // Consumer
+
+    /**
+     * Consumer thread only.
+     *
+     * @return null if the queue is empty
+     */
+    public E poll() {
+        final SpscRingQueue.Sequence head = mHead;
+        long h = head.get();
+        int index = (int) h & mMask;
+        E e = mBuffer.get(index);
+        if (e == null) {
+            if (h == mTail.get()) {
+                return null;
+            }
+            // claimed but not yet published, the producer is in between,
+            // yield in case it's preempted
+            while ((e = mBuffer.get(index)) == null) {
+                Thread.yield();
+            }
+        }
+        mBuffer.lazySet(index, null);
+        head.lazySet(h + 1);
+        return e;
+    }
+
+    /**
+     * Consumer thread only. Hand at most limit published elements to
+     * consumer, stops at the first slot not yet published instead of
+     * waiting. The slots are released to producers once after the batch. If
+     * consumer throws, the elements handed out so far are consumed.
+     *
+     * @return number of elements drained
+     */
+    public int drain(SpscRingQueue.Consumer<? super E> consumer, int limit) {
+        final SpscRingQueue.Sequence head = mHead;
+        final AtomicReferenceArray<E> buffer = mBuffer;
+        final int mask = mMask;
+        long h = head.get();
+        int n = 0;
+        try {
+            while (n < limit) {
+                int index = (int) (h + n) & mask;
+                E e = buffer.get(index);
+                if (e == null) {
+                    break;
+                }
+                buffer.lazySet(index, null);
+                ++n;
+                consumer.accept(e);
+            }
+        } finally {
+            // the cleared slots are released even if consumer throws
+            if (n > 0) {
+                head.lazySet(h + n);
+            }
+        }
+        return n;
+    }
+
+    // Either side
+
+    /**
+     * A snapshot including claimed but unpublished slots, may be stale.
+     */
+    public int size() {
+        long h = mHead.get();
+        return (int) Math.min(mTail.get() - h, mCapacity);
+    }
+
+    public boolean isEmpty() {
+        return mHead.get() == mTail.get();
+    }
+}
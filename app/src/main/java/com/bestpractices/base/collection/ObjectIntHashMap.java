@@ -0,0 +1,324 @@
+package com.bestpractices.base.collection;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+
+/**
+ * An object to int hash map without boxing, for counting by object and for
+ * assigning dense int ids to objects, see {@link #intern(Object)}. Unlike
+ * {@link HashMapSlim}, keys are compared with equals(), so hash collisions
+ * are fine.<br/>
+ * Open addressing with linear probing in two parallel arrays, no Entry
+ * object is allocated. Null keys are not supported.
+ */
+public class ObjectIntHashMap<K> {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private Object[] mKeys;
+    private int[] mValues;
+    private int mMask;
+    private int mSize;
+    private int mThreshold;
+
+    private int mModCount;
+
+    public ObjectIntHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize number of keys to hold without rehash
+     */
+    public ObjectIntHashMap(int expectedSize) {
+        allocate(tableSizeFor((int) Math.ceil(expectedSize / LOAD_FACTOR)));
+    }
+
+    private static int tableSizeFor(int capacity) {
+        return Math.max(4, Integer.highestOneBit(Math.max(capacity, 1) - 1) << 1);
+    }
+
+    private void allocate(int capacity) {
+        mKeys = new Object[capacity];
+        mValues = new int[capacity];
+        mMask = capacity - 1;
+        mThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int mix(Object key) {
+        int h = key.hashCode() * 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    // Access
+
+    /**
+     * @return slot of the key, or ~slot of the empty slot where it would be
+     */
+    private int find(Object key) {
+        final Object[] keys = mKeys;
+        final int mask = mMask;
+        int slot = mix(key) & mask;
+        Object k;
+        while ((k = keys[slot]) != null) {
+            if (k == key || k.equals(key)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return ~slot;
+    }
+
+    public boolean containsKey(K key) {
+        return find(key) >= 0;
+    }
+
+    public int get(K key) {
+        return getOrDefault(key, 0);
+    }
+
+    public int getOrDefault(K key, int defaultValue) {
+        int slot = find(key);
+        return slot >= 0 ? mValues[slot] : defaultValue;
+    }
+
+    // Add
+
+    /**
+     * @return previous value of the key, or 0 if none
+     */
+    public int put(K key, int value) {
+        int slot = find(key);
+        if (slot >= 0) {
+            int previous = mValues[slot];
+            mValues[slot] = value;
+            return previous;
+        }
+        insertAt(~slot, key, value);
+        return 0;
+    }
+
+    /**
+     * @return true if the key was absent and the value is put
+     */
+    public boolean putIfAbsent(K key, int value) {
+        int slot = find(key);
+        if (slot >= 0) {
+            return false;
+        }
+        insertAt(~slot, key, value);
+        return true;
+    }
+
+    /**
+     * Add delta to the value of the key, a missing key counts as 0.
+     *
+     * @return the new value
+     */
+    public int addTo(K key, int delta) {
+        int slot = find(key);
+        if (slot >= 0) {
+            return mValues[slot] += delta;
+        }
+        insertAt(~slot, key, delta);
+        return delta;
+    }
+
+    /**
+     * Dense id of the key: the value of an existing key, otherwise the key is
+     * put with the current size as value. In a map only used this way, ids
+     * are 0 to size() - 1 in insertion order, ready to index arrays or
+     * {@link IntArrayList}s. Removing keys breaks the density.
+     */
+    public int intern(K key) {
+        int slot = find(key);
+        if (slot >= 0) {
+            return mValues[slot];
+        }
+        int id = mSize;
+        insertAt(~slot, key, id);
+        return id;
+    }
+
+    private void insertAt(int slot, Object key, int value) {
+        if (mSize >= mThreshold) {
+            rehash(mKeys.length << 1);
+            slot = ~find(key);
+        }
+        mKeys[slot] = key;
+        mValues[slot] = value;
+        ++mSize;
+        ++mModCount;
+    }
+
+    private void rehash(int capacity) {
+        final Object[] oldKeys = mKeys;
+        final int[] oldValues = mValues;
+        allocate(capacity);
+        final Object[] keys = mKeys;
+        final int[] values = mValues;
+        final int mask = mMask;
+        for (int i = 0; i < oldKeys.length; ++i) {
+            Object key = oldKeys[i];
+            if (key != null) {
+                int slot = mix(key) & mask;
+                while (keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    // Remove
+
+    /**
+     * @return value of the removed key, or valueIfKeyNotFound
+     */
+    public int remove(K key, int valueIfKeyNotFound) {
+        int slot = find(key);
+        if (slot < 0) {
+            return valueIfKeyNotFound;
+        }
+        int result = mValues[slot];
+        removeAt(slot);
+        return result;
+    }
+
+    public boolean remove(K key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return false;
+        }
+        removeAt(slot);
+        return true;
+    }
+
+    /**
+     * Backward shift deletion: move following entries of the probe chain into
+     * the hole, so lookups never need tombstones.
+     */
+    private void removeAt(int slot) {
+        final Object[] keys = mKeys;
+        final int[] values = mValues;
+        final int mask = mMask;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        Object key;
+        while ((key = keys[next]) != null) {
+            int home = mix(key) & mask;
+            // move it if its home is not within (hole, next]
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = key;
+                values[hole] = values[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[hole] = null;
+        values[hole] = 0;
+        --mSize;
+        ++mModCount;
+    }
+
+    /**
+     * Capacity is kept, call {@link #trimToSize()} to release it.
+     */
+    public void clear() {
+        if (mSize != 0) {
+            Arrays.fill(mKeys, null);
+            Arrays.fill(mValues, 0);
+            mSize = 0;
+            ++mModCount;
+        }
+    }
+
+    public void trimToSize() {
+        int capacity = tableSizeFor((int) Math.ceil(mSize / LOAD_FACTOR));
+        if (capacity < mKeys.length) {
+            rehash(capacity);
+        }
+    }
+
+    // Iterate
+
+    /**
+     * A cursor over the entries, which allocates nothing per entry.
+     * <pre>
+     * ObjectIntHashMap.Cursor c = map.cursor();
+     * while (c.moveToNext()) {
+     *     use(c.key(), c.value());
+     * }
+     * </pre>
+     * The map must not be structurally modified while iterating.
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    public final class Cursor {
+        private int mSlot = -1;
+        private int mExpectedModCount = mModCount;
+
+        public boolean moveToNext() {
+            checkForComodification();
+            final Object[] keys = mKeys;
+            while (++mSlot < keys.length) {
+                if (keys[mSlot] != null) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @SuppressWarnings("unchecked")
+        public K key() {
+            checkEntry();
+            return (K) mKeys[mSlot];
+        }
+
+        public int value() {
+            checkEntry();
+            return mValues[mSlot];
+        }
+
+        public void setValue(int value) {
+            checkEntry();
+            mValues[mSlot] = value;
+        }
+
+        private void checkEntry() {
+            checkForComodification();
+            if (mSlot < 0 || mSlot >= mKeys.length) {
+                throw new NoSuchElementException();
+            }
+        }
+
+        private void checkForComodification() {
+            if (mModCount != mExpectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append('<').append(mSize).append(">: {");
+        Cursor c = cursor();
+        for (int i = 0; i < 1000 && c.moveToNext(); ++i) {
+            sb.append(c.key()).append('=').append(c.value()).append(", ");
+        }
+        return sb.append('}').toString();
+    }
+}
@@ -0,0 +1,489 @@
+package com.bestpractices.base.collection;
+
+import com.bestpractices.base.util.BufferHelper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * An int list with the API of {@link IntArrayList} which keeps its elements
+ * out of the Java heap, in fixed-size segments of direct memory or of a
+ * memory-mapped file. Growing never copies, it allocates or maps one more
+ * region, each region as large as all before it up to 256MB, which is then
+ * sliced into segments. So a list of a few GB is a few dozen mappings, far
+ * below the per process limit of mappings (vm.max_map_count).<br/>
+ * Call {@link #close()} to free the memory or unmap the file explicitly, the
+ * list must not be used after that. See {@link BufferHelper#release} for
+ * platforms on which it's left to GC.
+ */
+public class OffHeapIntList implements Closeable {
+    /**
+     * 64KB per segment.
+     */
+    private static final int SEGMENT_SHIFT = 14;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+    private static final int SEGMENT_BYTES = SEGMENT_SIZE * 4;
+
+    /**
+     * 256MB per region at most.
+     */
+    private static final int MAX_REGION_SEGMENTS = 4096;
+
+    /**
+     * File layout: [magic, size] then segments.
+     */
+    private static final int MAGIC = 0x4f48494c; // "OHIL"
+    private static final int HEADER_BYTES = 8;
+
+    /**
+     * Regions own the memory, segments are slices of them.
+     */
+    private ByteBuffer[] mRegions = new ByteBuffer[4];
+    private int[] mRegionStarts = new int[4];
+    private int mRegionCount;
+    private IntBuffer[] mSegments = new IntBuffer[4];
+    private int mSegmentCount;
+    private int mSize;
+
+    private RandomAccessFile mFile;
+    private FileChannel mChannel;
+    private MappedByteBuffer mHeader;
+
+    /**
+     * Backed by direct memory.
+     */
+    public OffHeapIntList() {
+    }
+
+    /**
+     * Backed by a memory-mapped file, which is created if not existed. The
+     * contents written before are restored.
+     */
+    public static OffHeapIntList open(String path) throws IOException {
+        OffHeapIntList list = new OffHeapIntList();
+        list.mFile = new RandomAccessFile(path, "rw");
+        try {
+            list.mChannel = list.mFile.getChannel();
+            boolean isNew = list.mChannel.size() < HEADER_BYTES;
+            list.mHeader = list.mChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            list.mHeader.order(ByteOrder.nativeOrder());
+            if (isNew) {
+                list.mHeader.putInt(0, MAGIC);
+                list.mHeader.putInt(4, 0);
+            } else if (list.mHeader.getInt(0) != MAGIC) {
+                throw new IOException("not an int list file: " + path);
+            }
+
+            int size = list.mHeader.getInt(4);
+            while (list.mSegmentCount << SEGMENT_SHIFT < size) {
+                list.appendRegion(((size + SEGMENT_MASK) >>> SEGMENT_SHIFT) - list.mSegmentCount);
+            }
+            list.mSize = size;
+        } catch (IOException e) {
+            list.close();
+            throw e;
+        }
+        return list;
+    }
+
+    public boolean isFileBacked() {
+        return mChannel != null;
+    }
+
+    // Segments
+
+    /**
+     * Allocate or map a region of at least minSegments, and as large as all
+     * regions before it so the count of regions grows logarithmically.
+     */
+    private void appendRegion(int minSegments) {
+        int count = Math.min(MAX_REGION_SEGMENTS, Math.max(minSegments, Math.max(1, mSegmentCount)));
+        long bytes = (long) count * SEGMENT_BYTES;
+        ByteBuffer region;
+        if (mChannel != null) {
+            try {
+                long position = HEADER_BYTES + (long) mSegmentCount * SEGMENT_BYTES;
+                region = mChannel.map(FileChannel.MapMode.READ_WRITE, position, bytes);
+            } catch (IOException e) {
+                throw new IllegalStateException("failed to grow " + this, e);
+            }
+        } else {
+            region = ByteBuffer.allocateDirect((int) bytes);
+        }
+
+        // 1) region
+        if (mRegionCount == mRegions.length) {
+            mRegions = Arrays.copyOf(mRegions, mRegionCount << 1);
+            mRegionStarts = Arrays.copyOf(mRegionStarts, mRegionCount << 1);
+        }
+        mRegions[mRegionCount] = region;
+        mRegionStarts[mRegionCount] = mSegmentCount;
+        ++mRegionCount;
+
+        // 2) segments sliced from it
+        int needed = mSegmentCount + count;
+        if (needed > mSegments.length) {
+            mSegments = Arrays.copyOf(mSegments, Math.max(needed, mSegments.length << 1));
+        }
+        for (int i = 0; i < count; ++i) {
+            ByteBuffer segment = region.duplicate();
+            segment.limit((i + 1) * SEGMENT_BYTES).position(i * SEGMENT_BYTES);
+            mSegments[mSegmentCount++] = segment.slice().order(ByteOrder.nativeOrder()).asIntBuffer();
+        }
+    }
+
+    /**
+     * @return count of allocations or mappings backing the list
+     */
+    public int regionCount() {
+        return mRegionCount;
+    }
+
+    private void setSize(int size) {
+        mSize = size;
+        if (mHeader != null) {
+            mHeader.putInt(4, size);
+        }
+    }
+
+    private int at(int index) {
+        return mSegments[index >>> SEGMENT_SHIFT].get(index & SEGMENT_MASK);
+    }
+
+    private void put(int index, int value) {
+        mSegments[index >>> SEGMENT_SHIFT].put(index & SEGMENT_MASK, value);
+    }
+
+    /**
+     * Move count elements from srcIndex to dstIndex, ranges may overlap.
+     */
+    private void move(int srcIndex, int dstIndex, int count) {
+        if (srcIndex < dstIndex) {
+            for (int i = count - 1; i >= 0; --i) {
+                put(dstIndex + i, at(srcIndex + i));
+            }
+        } else {
+            for (int i = 0; i < count; ++i) {
+                put(dstIndex + i, at(srcIndex + i));
+            }
+        }
+    }
+
+    // Add
+
+    public OffHeapIntList add(int value) {
+        int s = mSize;
+        if (s == mSegmentCount << SEGMENT_SHIFT) {
+            appendRegion(1);
+        }
+        put(s, value);
+        setSize(s + 1);
+        return this;
+    }
+
+    /**
+     * @throws IndexOutOfBoundsException when {@code location < 0 || location > size()}
+     */
+    public OffHeapIntList add(int index, int value) {
+        int s = mSize;
+        if (index > s || index < 0) {
+            throwIndexOutOfBoundsException(index, s);
+        }
+        if (s == mSegmentCount << SEGMENT_SHIFT) {
+            appendRegion(1);
+        }
+        move(index, index + 1, s - index);
+        put(index, value);
+        setSize(s + 1);
+        return this;
+    }
+
+    public int binaryAdd(int value) {
+        int index = binarySearch(value);
+        if (index < 0) {
+            index = ~index;
+        }
+        add(index, value);
+        return index;
+    }
+
+    // Search
+
+    /**
+     * @return the non-negative index of the element, or a negative index which
+     * is -index - 1 where the element would be inserted.
+     */
+    public int binarySearch(int value) {
+        int lo = 0;
+        int hi = mSize - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int midVal = at(mid);
+            if (midVal < value) {
+                lo = mid + 1;
+            } else if (midVal > value) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return ~lo;
+    }
+
+    /**
+     * @return positive index of the value to insert
+     */
+    public int binaryInsertSearch(int value) {
+        int index = binarySearch(value);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return index;
+    }
+
+    public boolean binaryContains(int value) {
+        return binarySearch(value) >= 0;
+    }
+
+    public void binaryRemove(int value) {
+        int index = binarySearch(value);
+        if (index >= 0) {
+            removeAt(index);
+        }
+    }
+
+    public boolean contains(int value) {
+        return indexOf(value) >= 0;
+    }
+
+    public int indexOf(int value) {
+        for (int i = 0, s = mSize; i < s; i++) {
+            if (value == at(i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public int lastIndexOf(int value) {
+        for (int i = mSize - 1; i >= 0; i--) {
+            if (value == at(i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Access
+
+    public int get(int index) {
+        if (index >= mSize) {
+            throwIndexOutOfBoundsException(index, mSize);
+        }
+        return at(index);
+    }
+
+    public void set(int index, int value) {
+        if (index >= mSize) {
+            throwIndexOutOfBoundsException(index, mSize);
+        }
+        put(index, value);
+    }
+
+    public void offset(int index, int valueChange) {
+        if (index >= mSize) {
+            throwIndexOutOfBoundsException(index, mSize);
+        }
+        put(index, at(index) + valueChange);
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    // Remove
+
+    public int removeAt(int index) {
+        int s = mSize;
+        if (index >= s) {
+            throwIndexOutOfBoundsException(index, s);
+        }
+        int result = at(index);
+        move(index + 1, index, s - index - 1);
+        setSize(s - 1);
+        return result;
+    }
+
+    public boolean remove(int value) {
+        int index = indexOf(value);
+        if (index >= 0) {
+            removeAt(index);
+            return true;
+        }
+        return false;
+    }
+
+    public void removeRange(int startIndex, int endIndex) {
+        if (startIndex == endIndex) {
+            return;
+        }
+        int s = mSize;
+        if (startIndex >= s) {
+            throw new IndexOutOfBoundsException("fromIndex " + startIndex + " >= size " + s);
+        }
+        if (endIndex > s) {
+            throw new IndexOutOfBoundsException("toIndex " + endIndex + " > size " + s);
+        }
+        if (startIndex > endIndex) {
+            throw new IndexOutOfBoundsException("fromIndex " + startIndex + " > toIndex " + endIndex);
+        }
+
+        move(endIndex, startIndex, s - endIndex);
+        setSize(s - (endIndex - startIndex));
+    }
+
+    public void clear() {
+        if (mSize != 0) {
+            setSize(0);
+        }
+    }
+
+    // Bulk
+
+    public int[] toArray() {
+        int s = mSize;
+        int[] result = new int[s];
+        for (int seg = 0, pos = 0; pos < s; ++seg, pos += SEGMENT_SIZE) {
+            IntBuffer segment = mSegments[seg].duplicate();
+            segment.position(0);
+            segment.get(result, pos, Math.min(SEGMENT_SIZE, s - pos));
+        }
+        return result;
+    }
+
+    /**
+     * Release the regions beyond size, and shrink the backing file if any.
+     * The region holding the last element is kept whole.
+     */
+    public void trimToSize() {
+        int needed = (mSize + SEGMENT_MASK) >>> SEGMENT_SHIFT;
+        while (mRegionCount > 0 && mRegionStarts[mRegionCount - 1] >= needed) {
+            --mRegionCount;
+            BufferHelper.release(mRegions[mRegionCount]);
+            mRegions[mRegionCount] = null;
+            for (int i = mRegionStarts[mRegionCount]; i < mSegmentCount; ++i) {
+                mSegments[i] = null;
+            }
+            mSegmentCount = mRegionStarts[mRegionCount];
+        }
+        if (mChannel != null) {
+            try {
+                // never below a live mapping, touching it would fault
+                mChannel.truncate(HEADER_BYTES + (long) mSegmentCount * SEGMENT_BYTES);
+            } catch (IOException e) {
+            }
+        }
+    }
+
+    /**
+     * In-place heap sort, so no heap memory as large as the list is needed.
+     */
+    public void sort() {
+        int s = mSize;
+        for (int i = (s >>> 1) - 1; i >= 0; --i) {
+            siftDown(i, s);
+        }
+        for (int end = s - 1; end > 0; --end) {
+            int top = at(0);
+            put(0, at(end));
+            put(end, top);
+            siftDown(0, end);
+        }
+    }
+
+    private void siftDown(int i, int end) {
+        int value = at(i);
+        int child;
+        while ((child = (i << 1) + 1) < end) {
+            if (child + 1 < end && at(child + 1) > at(child)) {
+                ++child;
+            }
+            int childValue = at(child);
+            if (value >= childValue) {
+                break;
+            }
+            put(i, childValue);
+            i = child;
+        }
+        put(i, value);
+    }
+
+    // Lifecycle
+
+    /**
+     * Write the changes of a file-backed list to storage.
+     */
+    public void flush() {
+        if (mHeader == null) {
+            return;
+        }
+        mHeader.force();
+        for (int i = 0; i < mRegionCount; ++i) {
+            ((MappedByteBuffer) mRegions[i]).force();
+        }
+    }
+
+    /**
+     * Free the direct memory or unmap the file. Contents of a file-backed
+     * list are kept in the file.
+     */
+    @Override
+    public void close() {
+        flush();
+        for (int i = 0; i < mRegionCount; ++i) {
+            BufferHelper.release(mRegions[i]);
+        }
+        BufferHelper.release(mHeader);
+        mRegions = null;
+        mRegionStarts = null;
+        mRegionCount = 0;
+        mSegments = null;
+        mSegmentCount = 0;
+        mHeader = null;
+
+        if (mFile != null) {
+            try {
+                mFile.close();
+            } catch (IOException e) {
+            }
+            mFile = null;
+            mChannel = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append('<').append(mSize).append(">: ");
+        for (int i = 0, end = Math.min(mSize, 1000); i < end; ++i) {
+            sb.append(at(i)).append(", ");
+        }
+        return sb.toString();
+    }
+
+    private static IndexOutOfBoundsException throwIndexOutOfBoundsException(int index, int size) {
+        throw new IndexOutOfBoundsException("Invalid index " + index + ", size is " + size);
+    }
+}
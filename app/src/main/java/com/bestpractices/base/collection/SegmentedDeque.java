@@ -0,0 +1,549 @@
+package com.bestpractices.base.collection;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A deque with the API of {@link ArrayDequeCompat} built from linked
+ * fixed-size segments. Growing links one more segment and never copies, and a
+ * segment is given back as soon as it's drained, so memory follows the
+ * current size instead of the peak one. A few drained segments are kept in a
+ * {@link LinkedPool} to avoid allocation when the size oscillates around a
+ * segment boundary.<br/>
+ * Not thread-safe, null elements are prohibited, iterators are fail-fast.
+ */
+public class SegmentedDeque<E> extends AbstractCollection<E> {
+    private static final int DEFAULT_SEGMENT_SIZE = 128;
+    private static final int DEFAULT_MAX_RECYCLED = 2;
+
+    static final class Segment implements LinkedPool.ILinkedPoolable {
+        final Object[] items;
+        Segment prev;
+        Segment next;
+
+        private Object mPoolNext;
+
+        Segment(int size) {
+            items = new Object[size];
+        }
+
+        @Override
+        public Object getNext() {
+            return mPoolNext;
+        }
+
+        @Override
+        public void setNext(Object nextNode) {
+            mPoolNext = nextNode;
+        }
+    }
+
+    private final int mSegmentSize;
+    private final LinkedPool<Segment> mPool;
+
+    /**
+     * The first element is at mHead[mHeadIndex], mHeadIndex < segment size.
+     */
+    private Segment mHead;
+    private int mHeadIndex;
+
+    /**
+     * The last element is at mTail[mTailIndex - 1], mTailIndex > 0 if not
+     * empty.
+     */
+    private Segment mTail;
+    private int mTailIndex;
+
+    private int mSize;
+    private int mModCount;
+
+    public SegmentedDeque() {
+        this(DEFAULT_SEGMENT_SIZE, DEFAULT_MAX_RECYCLED);
+    }
+
+    /**
+     * @param segmentSize  elements per segment
+     * @param maxRecycled  drained segments to keep for reuse
+     */
+    public SegmentedDeque(final int segmentSize, int maxRecycled) {
+        if (segmentSize < 2) {
+            throw new IllegalArgumentException("segmentSize " + segmentSize);
+        }
+        mSegmentSize = segmentSize;
+        mPool = new LinkedPool<Segment>(new LinkedPool.InstanceCreator<Segment>() {
+            @Override
+            public Segment createInstance() {
+                return new Segment(segmentSize);
+            }
+        }, maxRecycled);
+        mHead = mTail = mPool.obtain();
+        mHeadIndex = mTailIndex = segmentSize >>> 1;
+    }
+
+    // Segments
+
+    private void recycle(Segment segment) {
+        segment.prev = segment.next = null;
+        mPool.recycle(segment);
+    }
+
+    /**
+     * Called when the deque becomes empty: the single segment left is
+     * centered, so both ends can grow without a new segment.
+     */
+    private void reset() {
+        mHeadIndex = mTailIndex = mSegmentSize >>> 1;
+    }
+
+    /**
+     * Drop the first element slot, which must be cleared already.
+     */
+    private void advanceHead() {
+        --mSize;
+        ++mModCount;
+        if (mSize == 0) {
+            reset();
+        } else if (++mHeadIndex == mSegmentSize) {
+            Segment old = mHead;
+            mHead = old.next;
+            mHead.prev = null;
+            mHeadIndex = 0;
+            recycle(old);
+        }
+    }
+
+    /**
+     * Drop the last element slot, which must be cleared already.
+     */
+    private void retreatTail() {
+        --mSize;
+        ++mModCount;
+        if (mSize == 0) {
+            reset();
+        } else if (--mTailIndex == 0) {
+            Segment old = mTail;
+            mTail = old.prev;
+            mTail.next = null;
+            mTailIndex = mSegmentSize;
+            recycle(old);
+        }
+    }
+
+    // Add
+
+    /**
+     * @throws NullPointerException if the specified element is null
+     */
+    public void addFirst(E e) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        if (mHeadIndex == 0) {
+            Segment segment = mPool.obtain();
+            segment.next = mHead;
+            mHead.prev = segment;
+            mHead = segment;
+            mHeadIndex = mSegmentSize;
+        }
+        mHead.items[--mHeadIndex] = e;
+        ++mSize;
+        ++mModCount;
+    }
+
+    /**
+     * @throws NullPointerException if the specified element is null
+     */
+    public void addLast(E e) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        if (mTailIndex == mSegmentSize) {
+            Segment segment = mPool.obtain();
+            segment.prev = mTail;
+            mTail.next = segment;
+            mTail = segment;
+            mTailIndex = 0;
+        }
+        mTail.items[mTailIndex++] = e;
+        ++mSize;
+        ++mModCount;
+    }
+
+    public boolean offerFirst(E e) {
+        addFirst(e);
+        return true;
+    }
+
+    public boolean offerLast(E e) {
+        addLast(e);
+        return true;
+    }
+
+    @Override
+    public boolean add(E e) {
+        addLast(e);
+        return true;
+    }
+
+    public boolean offer(E e) {
+        return offerLast(e);
+    }
+
+    public void push(E e) {
+        addFirst(e);
+    }
+
+    // Remove
+
+    @SuppressWarnings("unchecked")
+    public E pollFirst() {
+        if (mSize == 0) {
+            return null;
+        }
+        Object[] items = mHead.items;
+        E result = (E) items[mHeadIndex];
+        items[mHeadIndex] = null;
+        advanceHead();
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    public E pollLast() {
+        if (mSize == 0) {
+            return null;
+        }
+        Object[] items = mTail.items;
+        E result = (E) items[mTailIndex - 1];
+        items[mTailIndex - 1] = null;
+        retreatTail();
+        return result;
+    }
+
+    /**
+     * @throws NoSuchElementException if this deque is empty
+     */
+    public E removeFirst() {
+        E x = pollFirst();
+        if (x == null) {
+            throw new NoSuchElementException();
+        }
+        return x;
+    }
+
+    /**
+     * @throws NoSuchElementException if this deque is empty
+     */
+    public E removeLast() {
+        E x = pollLast();
+        if (x == null) {
+            throw new NoSuchElementException();
+        }
+        return x;
+    }
+
+    public E remove() {
+        return removeFirst();
+    }
+
+    public E poll() {
+        return pollFirst();
+    }
+
+    public E pop() {
+        return removeFirst();
+    }
+
+    public boolean removeFirstOccurrence(Object o) {
+        if (o == null) {
+            return false;
+        }
+        Segment segment = mHead;
+        int index = mHeadIndex;
+        for (int i = 0; i < mSize; ++i) {
+            if (o.equals(segment.items[index])) {
+                deleteShiftFront(segment, index);
+                return true;
+            }
+            if (++index == mSegmentSize) {
+                segment = segment.next;
+                index = 0;
+            }
+        }
+        return false;
+    }
+
+    public boolean removeLastOccurrence(Object o) {
+        if (o == null) {
+            return false;
+        }
+        Segment segment = mTail;
+        int index = mTailIndex;
+        for (int i = 0; i < mSize; ++i) {
+            if (index == 0) {
+                segment = segment.prev;
+                index = mSegmentSize;
+            }
+            if (o.equals(segment.items[--index])) {
+                deleteShiftBack(segment, index);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return removeFirstOccurrence(o);
+    }
+
+    /**
+     * Remove the element at segment[index] by moving the elements before it
+     * one step toward the tail. Elements after it keep their positions.
+     */
+    private void deleteShiftFront(Segment segment, int index) {
+        while (segment != mHead || index != mHeadIndex) {
+            Segment prevSegment = segment;
+            int prevIndex = index - 1;
+            if (prevIndex < 0) {
+                prevSegment = segment.prev;
+                prevIndex = mSegmentSize - 1;
+            }
+            segment.items[index] = prevSegment.items[prevIndex];
+            segment = prevSegment;
+            index = prevIndex;
+        }
+        mHead.items[mHeadIndex] = null;
+        advanceHead();
+    }
+
+    /**
+     * Remove the element at segment[index] by moving the elements after it
+     * one step toward the head. Elements before it keep their positions.
+     */
+    private void deleteShiftBack(Segment segment, int index) {
+        while (segment != mTail || index != mTailIndex - 1) {
+            Segment nextSegment = segment;
+            int nextIndex = index + 1;
+            if (nextIndex == mSegmentSize) {
+                nextSegment = segment.next;
+                nextIndex = 0;
+            }
+            segment.items[index] = nextSegment.items[nextIndex];
+            segment = nextSegment;
+            index = nextIndex;
+        }
+        mTail.items[mTailIndex - 1] = null;
+        retreatTail();
+    }
+
+    /**
+     * Remove all elements and give back all segments but one.
+     */
+    @Override
+    public void clear() {
+        Segment segment = mHead;
+        while (segment != null) {
+            Segment next = segment.next;
+            Arrays.fill(segment.items, null);
+            if (segment != mHead) {
+                recycle(segment);
+            }
+            segment = next;
+        }
+        mHead.next = null;
+        mTail = mHead;
+        mSize = 0;
+        ++mModCount;
+        reset();
+    }
+
+    // Access
+
+    /**
+     * @throws NoSuchElementException if this deque is empty
+     */
+    public E getFirst() {
+        E x = peekFirst();
+        if (x == null) {
+            throw new NoSuchElementException();
+        }
+        return x;
+    }
+
+    /**
+     * @throws NoSuchElementException if this deque is empty
+     */
+    public E getLast() {
+        E x = peekLast();
+        if (x == null) {
+            throw new NoSuchElementException();
+        }
+        return x;
+    }
+
+    @SuppressWarnings("unchecked")
+    public E peekFirst() {
+        return mSize == 0 ? null : (E) mHead.items[mHeadIndex];
+    }
+
+    @SuppressWarnings("unchecked")
+    public E peekLast() {
+        return mSize == 0 ? null : (E) mTail.items[mTailIndex - 1];
+    }
+
+    public E element() {
+        return getFirst();
+    }
+
+    public E peek() {
+        return peekFirst();
+    }
+
+    @Override
+    public int size() {
+        return mSize;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (o == null) {
+            return false;
+        }
+        Segment segment = mHead;
+        int index = mHeadIndex;
+        for (int i = 0; i < mSize; ++i) {
+            if (o.equals(segment.items[index])) {
+                return true;
+            }
+            if (++index == mSegmentSize) {
+                segment = segment.next;
+                index = 0;
+            }
+        }
+        return false;
+    }
+
+    // Iterators
+
+    @Override
+    public Iterator<E> iterator() {
+        return new DeqIterator();
+    }
+
+    public Iterator<E> descendingIterator() {
+        return new DescendingIterator();
+    }
+
+    private class DeqIterator implements Iterator<E> {
+        /**
+         * Position of the next element, moved to the next segment eagerly so
+         * that it never points into a segment recycled by remove().
+         */
+        private Segment mSegment = mHead;
+        private int mIndex = mHeadIndex;
+        private int mRemaining = mSize;
+
+        private Segment mLastSegment;
+        private int mLastIndex = -1;
+        private int mExpectedModCount = mModCount;
+
+        @Override
+        public boolean hasNext() {
+            return mRemaining > 0;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E next() {
+            if (mExpectedModCount != mModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (mRemaining <= 0) {
+                throw new NoSuchElementException();
+            }
+            E result = (E) mSegment.items[mIndex];
+            mLastSegment = mSegment;
+            mLastIndex = mIndex;
+            if (--mRemaining > 0 && ++mIndex == mSegmentSize) {
+                mSegment = mSegment.next;
+                mIndex = 0;
+            }
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            if (mLastIndex < 0) {
+                throw new IllegalStateException();
+            }
+            if (mExpectedModCount != mModCount) {
+                throw new ConcurrentModificationException();
+            }
+            // elements after the removed one, including the next, stay put
+            deleteShiftFront(mLastSegment, mLastIndex);
+            mLastSegment = null;
+            mLastIndex = -1;
+            mExpectedModCount = mModCount;
+        }
+    }
+
+    private class DescendingIterator implements Iterator<E> {
+        /**
+         * Mirror of DeqIterator, the next element is at mIndex - 1.
+         */
+        private Segment mSegment = mTail;
+        private int mIndex = mTailIndex;
+        private int mRemaining = mSize;
+
+        private Segment mLastSegment;
+        private int mLastIndex = -1;
+        private int mExpectedModCount = mModCount;
+
+        @Override
+        public boolean hasNext() {
+            return mRemaining > 0;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E next() {
+            if (mExpectedModCount != mModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (mRemaining <= 0) {
+                throw new NoSuchElementException();
+            }
+            E result = (E) mSegment.items[--mIndex];
+            mLastSegment = mSegment;
+            mLastIndex = mIndex;
+            if (--mRemaining > 0 && mIndex == 0) {
+                mSegment = mSegment.prev;
+                mIndex = mSegmentSize;
+            }
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            if (mLastIndex < 0) {
+                throw new IllegalStateException();
+            }
+            if (mExpectedModCount != mModCount) {
+                throw new ConcurrentModificationException();
+            }
+            // elements before the removed one, including the next, stay put
+            deleteShiftBack(mLastSegment, mLastIndex);
+            mLastSegment = null;
+            mLastIndex = -1;
+            mExpectedModCount = mModCount;
+        }
+    }
+}
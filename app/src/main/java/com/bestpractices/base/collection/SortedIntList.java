@@ -0,0 +1,471 @@
+package com.bestpractices.base.collection;
+
+import com.bestpractices.base.Assert;
+
+/**
+ * A sorted int multiset with the binary search API of {@link IntArrayList}.
+ * Backed by a counted B+tree, so {@link #binaryAdd(int)},
+ * {@link #binaryRemove(int)}, {@link #get(int)} and {@link #rank(int)} are all
+ * O(log n) instead of the O(n) array shift of {@link IntArrayList}. Prefer
+ * {@link IntArrayList} for small lists or read-mostly data, it's more compact
+ * and faster to scan.
+ */
+public class SortedIntList {
+    private static final int LEAF_CAPACITY = 256;
+    private static final int BRANCH_CAPACITY = 64;
+
+    /**
+     * Leaves of a bulk load are filled to 7/8 to leave room for inserts.
+     */
+    private static final int LEAF_LOAD = LEAF_CAPACITY - (LEAF_CAPACITY >> 3);
+    private static final int BRANCH_LOAD = BRANCH_CAPACITY - (BRANCH_CAPACITY >> 3);
+
+    /**
+     * A leaf holds sorted values in keys. A branch holds the first value of
+     * each child in keys and the element count of each child in sizes.
+     */
+    private static final class Node {
+        final int[] keys;
+        final Node[] children;
+        final int[] sizes;
+        int count;
+
+        Node(boolean leaf) {
+            if (leaf) {
+                keys = new int[LEAF_CAPACITY];
+                children = null;
+                sizes = null;
+            } else {
+                keys = new int[BRANCH_CAPACITY];
+                children = new Node[BRANCH_CAPACITY];
+                sizes = new int[BRANCH_CAPACITY];
+            }
+        }
+
+        boolean isLeaf() {
+            return children == null;
+        }
+
+        int capacity() {
+            return keys.length;
+        }
+
+        /**
+         * Index of the last child whose first value < value, or 0.
+         */
+        int childFor(int value) {
+            int lo = 1;
+            int hi = count - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (keys[mid] < value) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            return lo - 1;
+        }
+
+        /**
+         * Index of the first value >= value in a leaf.
+         */
+        int lowerBound(int value) {
+            int lo = 0;
+            int hi = count - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (keys[mid] < value) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            return lo;
+        }
+
+        int size() {
+            if (isLeaf()) {
+                return count;
+            }
+            int size = 0;
+            for (int i = 0; i < count; ++i) {
+                size += sizes[i];
+            }
+            return size;
+        }
+    }
+
+    private Node mRoot = new Node(true);
+    private int mSize;
+
+    public SortedIntList() {
+    }
+
+    public SortedIntList(IntArrayList sorted) {
+        addAllSorted(sorted.toArray(), 0, sorted.size());
+    }
+
+    // Query
+
+    public int size() {
+        return mSize;
+    }
+
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    public int get(int index) {
+        if (index >= mSize || index < 0) {
+            throwIndexOutOfBoundsException(index, mSize);
+        }
+
+        Node node = mRoot;
+        while (!node.isLeaf()) {
+            int i = 0;
+            while (index >= node.sizes[i]) {
+                index -= node.sizes[i++];
+            }
+            node = node.children[i];
+        }
+        return node.keys[index];
+    }
+
+    /**
+     * Same as {@link #get(int)}: the k-th smallest value.
+     */
+    public int select(int k) {
+        return get(k);
+    }
+
+    /**
+     * @return count of values < value, which is also the first index where
+     * value is or would be inserted.
+     */
+    public int rank(int value) {
+        int rank = 0;
+        Node node = mRoot;
+        while (!node.isLeaf()) {
+            int child = node.childFor(value);
+            for (int i = 0; i < child; ++i) {
+                rank += node.sizes[i];
+            }
+            node = node.children[child];
+        }
+        return rank + node.lowerBound(value);
+    }
+
+    /**
+     * @return the non-negative index of the element, or a negative index which
+     * is -index - 1 where the element would be inserted.
+     */
+    public int binarySearch(int value) {
+        int index = rank(value);
+        if (index < mSize && get(index) == value) {
+            return index;
+        }
+        return ~index;
+    }
+
+    /**
+     * @return positive index of the value to insert
+     */
+    public int binaryInsertSearch(int value) {
+        return rank(value);
+    }
+
+    public boolean binaryContains(int value) {
+        return binarySearch(value) >= 0;
+    }
+
+    // Add
+
+    /**
+     * @return the index where the value is inserted
+     */
+    public int binaryAdd(int value) {
+        int index = rank(value);
+        Node sibling = insert(mRoot, index, value);
+        if (sibling != null) {
+            Node root = new Node(false);
+            appendChild(root, mRoot);
+            appendChild(root, sibling);
+            mRoot = root;
+        }
+        ++mSize;
+        return index;
+    }
+
+    /**
+     * Insert value at index of node's subtree.
+     *
+     * @return the new right sibling if node is split
+     */
+    private static Node insert(Node node, int index, int value) {
+        if (node.isLeaf()) {
+            if (node.count == node.capacity()) {
+                Node right = splitLeaf(node);
+                if (index > node.count) {
+                    insertIntoLeaf(right, index - node.count, value);
+                } else {
+                    insertIntoLeaf(node, index, value);
+                }
+                return right;
+            }
+            insertIntoLeaf(node, index, value);
+            return null;
+        }
+
+        // 1) find child by index, append to the left child on boundaries
+        int i = 0;
+        while (i < node.count - 1 && index > node.sizes[i]) {
+            index -= node.sizes[i++];
+        }
+
+        // 2) insert into child
+        Node child = node.children[i];
+        Node sibling = insert(child, index, value);
+        node.keys[i] = child.keys[0];
+        if (sibling == null) {
+            ++node.sizes[i];
+            return null;
+        }
+        node.sizes[i] = child.size();
+
+        // 3) add the split sibling
+        if (node.count == node.capacity()) {
+            Node right = splitBranch(node);
+            if (i >= node.count) {
+                insertChild(right, i - node.count + 1, sibling);
+            } else {
+                insertChild(node, i + 1, sibling);
+            }
+            return right;
+        }
+        insertChild(node, i + 1, sibling);
+        return null;
+    }
+
+    private static void insertIntoLeaf(Node leaf, int index, int value) {
+        System.arraycopy(leaf.keys, index, leaf.keys, index + 1, leaf.count - index);
+        leaf.keys[index] = value;
+        ++leaf.count;
+    }
+
+    private static void insertChild(Node branch, int index, Node child) {
+        int move = branch.count - index;
+        System.arraycopy(branch.keys, index, branch.keys, index + 1, move);
+        System.arraycopy(branch.children, index, branch.children, index + 1, move);
+        System.arraycopy(branch.sizes, index, branch.sizes, index + 1, move);
+        branch.keys[index] = child.keys[0];
+        branch.children[index] = child;
+        branch.sizes[index] = child.size();
+        ++branch.count;
+    }
+
+    private static void appendChild(Node branch, Node child) {
+        insertChild(branch, branch.count, child);
+    }
+
+    private static Node splitLeaf(Node leaf) {
+        Node right = new Node(true);
+        int half = leaf.count >> 1;
+        right.count = leaf.count - half;
+        System.arraycopy(leaf.keys, half, right.keys, 0, right.count);
+        leaf.count = half;
+        return right;
+    }
+
+    private static Node splitBranch(Node branch) {
+        Node right = new Node(false);
+        int half = branch.count >> 1;
+        right.count = branch.count - half;
+        System.arraycopy(branch.keys, half, right.keys, 0, right.count);
+        System.arraycopy(branch.children, half, right.children, 0, right.count);
+        System.arraycopy(branch.sizes, half, right.sizes, 0, right.count);
+        for (int i = half; i < branch.count; ++i) {
+            branch.children[i] = null;
+        }
+        branch.count = half;
+        return right;
+    }
+
+    /**
+     * Add sorted values in O(n + length) by rebuilding the tree, which is
+     * much faster than {@link #binaryAdd(int)} one by one for large batches.
+     */
+    public void addAllSorted(int[] sorted, int offset, int length) {
+        if (length == 0) {
+            return;
+        }
+
+        // merge with existing values
+        int[] values = sorted;
+        int start = offset;
+        if (mSize > 0) {
+            int[] old = toArray();
+            values = new int[old.length + length];
+            int i = 0, j = offset, k = 0, end = offset + length;
+            while (i < old.length && j < end) {
+                values[k++] = old[i] <= sorted[j] ? old[i++] : sorted[j++];
+            }
+            System.arraycopy(old, i, values, k, old.length - i);
+            System.arraycopy(sorted, j, values, k + old.length - i, end - j);
+            start = 0;
+        }
+        build(values, start, mSize + length);
+    }
+
+    private void build(int[] values, int offset, int length) {
+        // 1) fill leaves
+        int leafCount = (length + LEAF_LOAD - 1) / LEAF_LOAD;
+        Node[] level = new Node[leafCount];
+        for (int i = 0, pos = offset, end = offset + length; i < leafCount; ++i) {
+            Node leaf = new Node(true);
+            leaf.count = Math.min(LEAF_LOAD, end - pos);
+            System.arraycopy(values, pos, leaf.keys, 0, leaf.count);
+            pos += leaf.count;
+            level[i] = leaf;
+        }
+
+        // 2) build branches bottom up
+        int count = leafCount;
+        while (count > 1) {
+            int branchCount = (count + BRANCH_LOAD - 1) / BRANCH_LOAD;
+            Node[] upper = new Node[branchCount];
+            for (int i = 0, pos = 0; i < branchCount; ++i) {
+                Node branch = new Node(false);
+                for (int end = Math.min(pos + BRANCH_LOAD, count); pos < end; ++pos) {
+                    appendChild(branch, level[pos]);
+                }
+                upper[i] = branch;
+            }
+            level = upper;
+            count = branchCount;
+        }
+
+        mRoot = level[0];
+        mSize = length;
+    }
+
+    // Remove
+
+    public void binaryRemove(int value) {
+        int index = binarySearch(value);
+        if (index >= 0) {
+            removeAt(index);
+        }
+    }
+
+    public int removeAt(int index) {
+        if (index >= mSize || index < 0) {
+            throwIndexOutOfBoundsException(index, mSize);
+        }
+
+        int result = remove(mRoot, index);
+        --mSize;
+
+        // shrink tree height
+        Node root = mRoot;
+        while (!root.isLeaf() && root.count == 1) {
+            root = root.children[0];
+        }
+        mRoot = root;
+        return result;
+    }
+
+    private static int remove(Node node, int index) {
+        if (node.isLeaf()) {
+            int result = node.keys[index];
+            System.arraycopy(node.keys, index + 1, node.keys, index, node.count - index - 1);
+            --node.count;
+            return result;
+        }
+
+        // 1) find child by index
+        int i = 0;
+        while (index >= node.sizes[i]) {
+            index -= node.sizes[i++];
+        }
+
+        // 2) remove from child
+        Node child = node.children[i];
+        int result = remove(child, index);
+        --node.sizes[i];
+        if (child.count > 0) {
+            node.keys[i] = child.keys[0];
+        }
+
+        // 3) merge small child into a neighbour
+        if (child.count < child.capacity() >> 2 && node.count > 1) {
+            int left = i > 0 ? i - 1 : i;
+            Node leftChild = node.children[left];
+            Node rightChild = node.children[left + 1];
+            if (leftChild.count + rightChild.count <= leftChild.capacity()) {
+                merge(leftChild, rightChild);
+                node.keys[left] = leftChild.keys[0];
+                node.sizes[left] += node.sizes[left + 1];
+                removeChild(node, left + 1);
+            }
+        }
+        return result;
+    }
+
+    private static void merge(Node left, Node right) {
+        System.arraycopy(right.keys, 0, left.keys, left.count, right.count);
+        if (!left.isLeaf()) {
+            System.arraycopy(right.children, 0, left.children, left.count, right.count);
+            System.arraycopy(right.sizes, 0, left.sizes, left.count, right.count);
+        }
+        left.count += right.count;
+    }
+
+    private static void removeChild(Node branch, int index) {
+        int move = branch.count - index - 1;
+        System.arraycopy(branch.keys, index + 1, branch.keys, index, move);
+        System.arraycopy(branch.children, index + 1, branch.children, index, move);
+        System.arraycopy(branch.sizes, index + 1, branch.sizes, index, move);
+        branch.children[--branch.count] = null;
+    }
+
+    public void clear() {
+        mRoot = new Node(true);
+        mSize = 0;
+    }
+
+    // Export
+
+    public int[] toArray() {
+        int[] result = new int[mSize];
+        int copied = copyTo(mRoot, result, 0);
+        Assert.d(copied == mSize);
+        return result;
+    }
+
+    private static int copyTo(Node node, int[] dest, int pos) {
+        if (node.isLeaf()) {
+            System.arraycopy(node.keys, 0, dest, pos, node.count);
+            return pos + node.count;
+        }
+        for (int i = 0; i < node.count; ++i) {
+            pos = copyTo(node.children[i], dest, pos);
+        }
+        return pos;
+    }
+
+    @Override
+    public String toString() {
+        int[] values = toArray();
+        StringBuilder sb = new StringBuilder();
+        sb.append('<').append(mSize).append(">: ");
+        for (int i = 0, end = Math.min(mSize, 1000); i < end; ++i) {
+            sb.append(values[i]).append(", ");
+        }
+        return sb.toString();
+    }
+
+    private static IndexOutOfBoundsException throwIndexOutOfBoundsException(int index, int size) {
+        throw new IndexOutOfBoundsException("Invalid index " + index + ", size is " + size);
+    }
+}
@@ -0,0 +1,175 @@
+package com.bestpractices.base.collection;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded lock-free queue for exactly one producer thread and one consumer
+ * thread, e.g. handing results from an I/O thread to the main thread.<br/>
+ * The ring buffer is power-of-two sized and masked like
+ * {@link ArrayDequeCompat}, but head and tail are ever increasing sequences.
+ * Each side only writes its own sequence, which is padded to its own cache
+ * line, and caches the other one to touch the shared line only when the
+ * queue looks full or empty. Null elements are prohibited.
+ */
+public class SpscRingQueue<E> {
+    /**
+     * Handle drained elements.
+     */
+    public interface Consumer<E> {
+        void accept(E e);
+    }
+
+    /**
+     * A sequence padded so that the two sides don't write the same cache
+     * line. cache is the owner's last read of the other sequence. It's never
+     * serialized.
+     */
+    @SuppressWarnings("serial")
+    static final class Sequence extends AtomicLong {
+        long cache;
+        long p1, p2, p3, p4, p5, p6, p7;
+    }
+
+    private final Object[] mBuffer;
+    private final int mMask;
+
+    /**
+     * Written by the consumer, cache is the last read tail.
+     */
+    private final Sequence mHead = new Sequence();
+
+    /**
+     * Written by the producer, cache is the last read head.
+     */
+    private final Sequence mTail = new Sequence();
+
+    /**
+     * @param capacity rounded up to a power of two
+     */
+    public SpscRingQueue(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity " + capacity);
+        }
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        mBuffer = new Object[size];
+        mMask = size - 1;
+    }
+
+    public int capacity() {
+        return mBuffer.length;
+    }
+
+    // Producer
+
+    /**
+     * Producer thread only.
+     *
+     * @return false if the queue is full
+     */
+    public boolean offer(E e) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        final Sequence tail = mTail;
+        long t = tail.get();
+        if (t - tail.cache >= mBuffer.length) {
+            tail.cache = mHead.get();
+            if (t - tail.cache >= mBuffer.length) {
+                return false;
+            }
+        }
+        mBuffer[(int) t & mMask] = e;
+        // release: the element is visible before the new tail
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    // Consumer
+
+    /**
+     * Consumer thread only.
+     *
+     * @return null if the queue is empty
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        final Sequence head = mHead;
+        long h = head.get();
+        if (h >= head.cache) {
+            head.cache = mTail.get();
+            if (h >= head.cache) {
+                return null;
+            }
+        }
+        int index = (int) h & mMask;
+        E e = (E) mBuffer[index];
+        mBuffer[index] = null;
+        head.lazySet(h + 1);
+        return e;
+    }
+
+    /**
+     * Consumer thread only. Hand at most limit elements to consumer, the
+     * slots are released to the producer once after the batch. If consumer
+     * throws, the elements handed out so far are consumed.
+     *
+     * @return number of elements drained
+     */
+    @SuppressWarnings("unchecked")
+    public int drain(Consumer<? super E> consumer, int limit) {
+        final Sequence head = mHead;
+        final Object[] buffer = mBuffer;
+        final int mask = mMask;
+        long h = head.get();
+        long available = head.cache - h;
+        if (available < limit) {
+            head.cache = mTail.get();
+            available = head.cache - h;
+        }
+        int n = (int) Math.min(available, limit);
+        int consumed = 0;
+        try {
+            while (consumed < n) {
+                int index = (int) (h + consumed) & mask;
+                E e = (E) buffer[index];
+                buffer[index] = null;
+                ++consumed;
+                consumer.accept(e);
+            }
+        } finally {
+            // the cleared slots are released even if consumer throws
+            if (consumed > 0) {
+                head.lazySet(h + consumed);
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Consumer thread only.
+     */
+    public E peek() {
+        long h = mHead.get();
+        if (h >= mTail.get()) {
+            return null;
+        }
+        @SuppressWarnings("unchecked")
+        E e = (E) mBuffer[(int) h & mMask];
+        return e;
+    }
+
+    // Either side
+
+    /**
+     * A snapshot, may be stale when the other side is running.
+     */
+    public int size() {
+        // read head first, so the size is never negative
+        long h = mHead.get();
+        return (int) (mTail.get() - h);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+}
@@ -0,0 +1,194 @@
+package com.bestpractices.base.util;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+public class BufferHelper {
+    // Release
+
+    /**
+     * Free the native memory of a direct or mapped buffer right now instead of
+     * waiting for GC. The buffer must not be used anymore after this. It must
+     * be the buffer which owns the memory, not a slice or duplicate of it.
+     *
+     * @return false if the platform has no way to do it, then it's left to GC
+     */
+    public static boolean release(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect()) {
+            return false;
+        }
+
+        try {
+            // Android: DirectByteBuffer.free()
+            Method free = findMethod(buffer.getClass(), "free");
+            if (free != null) {
+                free.invoke(buffer);
+                return true;
+            }
+
+            // JVM 9+: Unsafe.invokeCleaner(), cleaner() is not accessible there
+            Object unsafe = getUnsafe();
+            if (unsafe != null) {
+                try {
+                    Method invokeCleaner = unsafe.getClass().getMethod("invokeCleaner", ByteBuffer.class);
+                    invokeCleaner.invoke(unsafe, buffer);
+                    return true;
+                } catch (NoSuchMethodException e) {
+                    // JVM 8
+                }
+            }
+
+            // JVM 8: DirectBuffer.cleaner().clean()
+            Method cleanerGetter = findMethod(buffer.getClass(), "cleaner");
+            if (cleanerGetter != null) {
+                Object cleaner = cleanerGetter.invoke(buffer);
+                if (cleaner != null) {
+                    Method clean = findMethod(cleaner.getClass(), "clean");
+                    if (clean != null) {
+                        clean.invoke(cleaner);
+                        return true;
+                    }
+                }
+            }
+        } catch (Throwable e) {
+        }
+        return false;
+    }
+
+    // Parse
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Zero-copy view of [offset, offset + length) of buffer, regardless of its
+     * position and limit. The order is kept, unlike {@link ByteBuffer#slice()}.
+     */
+    public static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.limit(offset + length).position(offset);
+        return duplicate.slice().order(buffer.order());
+    }
+
+    public static int getUnsignedByte(ByteBuffer buffer, int offset) {
+        return buffer.get(offset) & 0xff;
+    }
+
+    public static int getUnsignedShort(ByteBuffer buffer, int offset) {
+        return buffer.getShort(offset) & 0xffff;
+    }
+
+    public static long getUnsignedInt(ByteBuffer buffer, int offset) {
+        return buffer.getInt(offset) & 0xffffffffL;
+    }
+
+    /**
+     * Read an unsigned LEB128 varint at the position and move past it.
+     *
+     * @throws IllegalArgumentException if longer than 5 bytes
+     */
+    public static int getVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = buffer.get();
+            value |= (b & 0x7f) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("malformed varint");
+    }
+
+    /**
+     * Read an unsigned LEB128 varint of up to 10 bytes at the position and
+     * move past it.
+     */
+    public static long getVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            int b = buffer.get();
+            value |= (long) (b & 0x7f) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("malformed varlong");
+    }
+
+    /**
+     * Decode length bytes at the position as UTF-8 and move past them, heap
+     * buffers are decoded in place.
+     */
+    public static String getUtf8(ByteBuffer buffer, int length) {
+        String result;
+        if (buffer.hasArray()) {
+            result = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, UTF_8);
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.duplicate().get(bytes);
+            result = new String(bytes, UTF_8);
+        }
+        buffer.position(buffer.position() + length);
+        return result;
+    }
+
+    /**
+     * @return index of the first value in [from, limit), or -1
+     */
+    public static int indexOf(ByteBuffer buffer, int from, byte value) {
+        for (int i = from, limit = buffer.limit(); i < limit; ++i) {
+            if (buffer.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Zero-copy view of the next line without its '\n' or "\r\n", moving the
+     * position past the line break.
+     *
+     * @return null if no remaining
+     */
+    public static ByteBuffer nextLine(ByteBuffer buffer) {
+        int start = buffer.position();
+        int limit = buffer.limit();
+        if (start >= limit) {
+            return null;
+        }
+
+        int end = indexOf(buffer, start, (byte) '\n');
+        int next = end < 0 ? limit : end + 1;
+        if (end < 0) {
+            end = limit;
+        }
+        if (end > start && buffer.get(end - 1) == '\r') {
+            --end;
+        }
+        buffer.position(next);
+        return slice(buffer, start, end - start);
+    }
+
+    private static Object getUnsafe() {
+        try {
+            Field field = Class.forName("sun.misc.Unsafe").getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return field.get(null);
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+    private static Method findMethod(Class<?> cls, String name) {
+        for (; cls != null; cls = cls.getSuperclass()) {
+            try {
+                Method method = cls.getDeclaredMethod(name);
+                method.setAccessible(true);
+                return method;
+            } catch (Throwable e) {
+            }
+        }
+        return null;
+    }
+}
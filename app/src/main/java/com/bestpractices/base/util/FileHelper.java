@@ -2,7 +2,6 @@ package com.bestpractices.base.util;
 
 import android.content.res.AssetManager;
 import android.content.res.XmlResourceParser;
-import android.os.AsyncTask;
 import android.os.Environment;
 import android.text.TextUtils;
 
@@ -16,7 +15,12 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
 
 public final class FileHelper {
     // Sync IO
@@ -54,7 +58,28 @@ public final class FileHelper {
         return write(path, false);
     }
 
+    /**
+     * @param lockFile block until an exclusive lock of the file is acquired,
+     *                 it's released when the stream is closed. The lock is
+     *                 not reentrant, don't open the same path again before
+     *                 closing the stream. Other paths can be locked meanwhile.
+     *                 Closing another stream of the same file in this
+     *                 process drops the lock, see {@link FileLockHelper}.
+     */
     public static FileOutputStream write(String path, boolean lockFile) {
+        return write(path, lockFile, -1, null);
+    }
+
+    /**
+     * Lock the file exclusively within the timeout, then open it.
+     *
+     * @return null if failed or not locked in time
+     */
+    public static FileOutputStream write(String path, long lockTimeout, TimeUnit unit) {
+        return write(path, true, lockTimeout, unit);
+    }
+
+    private static FileOutputStream write(String path, boolean lockFile, long lockTimeout, TimeUnit unit) {
         // 1) ensure dir
         String[] parts = splitFileName(path);
         if (!TextUtils.isEmpty(parts[0])) {
@@ -63,26 +88,62 @@ public final class FileHelper {
             }
         }
 
-        // 2) open stream;
-        FileOutputStream stream;
-        try {
-            stream = new FileOutputStream(path);
-            if (lockFile) {
-                while (true) {
-                    try {
-                        if (stream.getChannel().tryLock() != null) {
-                            break;
-                        }
-                    } catch (Exception ex) {
-                    }
-                    Thread.sleep(100);
-                }
+        // 2) lock before open, which truncates the file
+        FileLockHelper.Lock lock = null;
+        if (lockFile) {
+            try {
+                lock = unit == null ? FileLockHelper.lock(path, false)
+                        : FileLockHelper.lock(path, false, lockTimeout, unit);
+            } catch (Throwable e) {
+                return null;
+            }
+            if (lock == null) {
+                return null;
             }
+        }
+
+        // 3) open stream
+        try {
+            return lock == null ? new FileOutputStream(path) : new LockedFileOutputStream(path, lock);
         } catch (Throwable e) {
+            if (lock != null) {
+                lock.release();
+            }
             return null;
         }
+    }
+
+    /**
+     * Release the file lock when closed.
+     */
+    private static class LockedFileOutputStream extends FileOutputStream {
+        private final FileLockHelper.Lock mLock;
+
+        LockedFileOutputStream(String path, FileLockHelper.Lock lock) throws IOException {
+            super(path);
+            mLock = lock;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                mLock.release();
+            }
+        }
+    }
 
-        return stream;
+    /**
+     * Map the whole file into memory, read it without copying through a
+     * stream. Read only and read write mappings of a path are shared by
+     * their holders, see {@link MappedFile}.
+     *
+     * @param mode {@link FileChannel.MapMode#READ_ONLY} for read-mostly data
+     * @return null if failed, otherwise release it when done
+     */
+    public static MappedFile map(String path, FileChannel.MapMode mode) {
+        return MappedFile.open(path, mode);
     }
 
     public static boolean delete(String path) {
@@ -112,6 +173,13 @@ public final class FileHelper {
 
     // Async IO
 
+    /*
+     * Async operations on one path run one at a time in submit order, like
+     * they did on the serial executor of AsyncTask, so e.g. a read after a
+     * write sees the written content. Operations on different paths run
+     * concurrently by priority.
+     */
+
     public static interface FileAsyncOperationCallback<Input, Result> {
         Result run(Input stream, Object... params);
 
@@ -122,20 +190,145 @@ public final class FileHelper {
      * Open file async and pass the {@link #InputStream} to your callback.<br/>
      * ATTENTION: the passed {@link #InputStream} may be null if any exceptions.
      */
-    public static <Result> void openAsync(int type, String path, FileAsyncOperationCallback<InputStream, Result> callback, Object... params) {
-        new FileOpenAsyncTask<Result>(callback).append(type, path).execute(params);
+    public static <Result> IoScheduler.IoFuture<Result> openAsync(int type, String path, FileAsyncOperationCallback<InputStream, Result> callback, Object... params) {
+        return new FileOpenAsyncTask<Result>(callback).append(type, path).execute(params);
+    }
+
+    /**
+     * Same as {@link #openAsync(int, String, FileAsyncOperationCallback, Object...)}
+     * in the given {@link IoScheduler} priority lane.
+     */
+    public static <Result> IoScheduler.IoFuture<Result> openAsync(int priority, int type, String path, FileAsyncOperationCallback<InputStream, Result> callback, Object... params) {
+        return new FileOpenAsyncTask<Result>(callback).append(type, path).execute(priority, params);
     }
 
     /**
      * Write file async and pass the {@link #OutputStream} to your callback.<br/>
      * NOTE: the passed {@link #OutputStream} won't be null.
      */
-    public static <Result> void writeAsync(String path, boolean lockFile, FileAsyncOperationCallback<OutputStream, Result> callback, Object... params) {
-        new FileWriteAsyncTask<Result>(path, lockFile, callback).execute(params);
+    public static <Result> IoScheduler.IoFuture<Result> writeAsync(String path, boolean lockFile, FileAsyncOperationCallback<OutputStream, Result> callback, Object... params) {
+        return writeAsync(IoScheduler.PRIORITY_USER_VISIBLE, path, lockFile, callback, params);
+    }
+
+    public static <Result> IoScheduler.IoFuture<Result> writeAsync(int priority, final String path, final boolean lockFile,
+                                                                   final FileAsyncOperationCallback<OutputStream, Result> callback, final Object... params) {
+        // writes carry different contents, never merged
+        return deliverResult(IoScheduler.getDefault().submit(null, serialKey(path), priority, new Callable<Result>() {
+            @Override
+            public Result call() {
+                // 1) open file
+                OutputStream stream = FileHelper.write(path, lockFile);
+                if (stream == null) {
+                    return null;
+                }
+
+                // 2) process
+                try {
+                    return callback.run(stream, params);
+                } finally {
+                    // 3) close
+                    try {
+                        stream.close();
+                    } catch (IOException e) {
+                    }
+                }
+            }
+        }), callback);
+    }
+
+    /**
+     * Delete file async, deletes of the same path in flight are merged unless
+     * the path was written since.
+     */
+    public static IoScheduler.IoFuture<Boolean> deleteAsync(String path, Runnable callback) {
+        return deleteAsync(IoScheduler.PRIORITY_BACKGROUND, path, callback);
+    }
+
+    public static IoScheduler.IoFuture<Boolean> deleteAsync(int priority, final String path, final Runnable callback) {
+        String serialKey = serialKey(path);
+        IoScheduler.IoFuture<Boolean> future = IoScheduler.getDefault().submit("delete:" + serialKey, serialKey, priority, new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return new File(path).delete();
+            }
+        });
+        if (callback != null) {
+            future.whenComplete(new IoScheduler.Listener<Boolean>() {
+                @Override
+                public void onComplete(Boolean result, Throwable error) {
+                    if (!(error instanceof CancellationException)) {
+                        callback.run();
+                    }
+                }
+            });
+        }
+        return future;
+    }
+
+    /**
+     * Read the whole file async, reads of the same path in flight are merged
+     * into one unless the path was written since.
+     *
+     * @return a future of the content, or of null if failed. Merged reads get
+     * the same array, so it must not be modified.
+     */
+    public static IoScheduler.IoFuture<byte[]> readAsync(int priority, final String path) {
+        String serialKey = serialKey(path);
+        return IoScheduler.getDefault().submit("read:" + serialKey, serialKey, priority, new Callable<byte[]>() {
+            @Override
+            public byte[] call() {
+                return read(path);
+            }
+        });
     }
 
-    public static void deleteAsync(String path, Runnable callback) {
-        new FileDeleteAsyncTask(path, callback).execute();
+    /**
+     * @return content of the file, or null if failed
+     */
+    public static byte[] read(String path) {
+        RandomAccessFile file = null;
+        try {
+            file = new RandomAccessFile(path, "r");
+            long length = file.length();
+            if (length > Integer.MAX_VALUE) {
+                return null;
+            }
+            byte[] content = new byte[(int) length];
+            file.readFully(content);
+            return content;
+        } catch (IOException e) {
+            return null;
+        } finally {
+            if (file != null) {
+                try {
+                    file.close();
+                } catch (IOException e) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Async operations are ordered by it.
+     */
+    private static String serialKey(String path) {
+        return new File(path).getAbsolutePath();
+    }
+
+    /**
+     * Call {@link FileAsyncOperationCallback#onResult(Object)} through the
+     * scheduler's delivery unless cancelled.
+     */
+    private static <Input, Result> IoScheduler.IoFuture<Result> deliverResult(IoScheduler.IoFuture<Result> future,
+                                                                              final FileAsyncOperationCallback<Input, Result> callback) {
+        return future.whenComplete(new IoScheduler.Listener<Result>() {
+            @Override
+            public void onComplete(Result result, Throwable error) {
+                if (!(error instanceof CancellationException)) {
+                    callback.onResult(error == null ? result : null);
+                }
+            }
+        });
     }
 
     /**
@@ -143,10 +336,11 @@ public final class FileHelper {
      * {@link #append(int, String)} to assign multiple filepath candidates. This
      * task will find the first available filepath to open.
      */
-    public static class FileOpenAsyncTask<Result> extends AsyncTask<Object, Object, Result> {
+    public static class FileOpenAsyncTask<Result> implements Callable<Result> {
         private final ArrayList<String> mFilePathCandidates = new ArrayList<String>();
         private final IntArrayList mFileTypeCandidates = new IntArrayList();
         private final FileAsyncOperationCallback<InputStream, Result> mCallback;
+        private Object[] mParams;
 
         public FileOpenAsyncTask(FileAsyncOperationCallback<InputStream, Result> callback) {
             Assert.r(callback != null);
@@ -160,8 +354,28 @@ public final class FileHelper {
             return this;
         }
 
+        public IoScheduler.IoFuture<Result> execute(Object... params) {
+            return execute(IoScheduler.PRIORITY_USER_VISIBLE, params);
+        }
+
+        /**
+         * @param priority lane of {@link IoScheduler}, ordered after the
+         *                 operations submitted before on the first file system
+         *                 candidate
+         */
+        public IoScheduler.IoFuture<Result> execute(int priority, Object... params) {
+            mParams = params;
+            String serialKey = null;
+            for (int i = 0, size = mFileTypeCandidates.size(); i < size && serialKey == null; ++i) {
+                if (mFileTypeCandidates.get(i) == TYPE_FILE_SYSTEM) {
+                    serialKey = serialKey(mFilePathCandidates.get(i));
+                }
+            }
+            return deliverResult(IoScheduler.getDefault().submit(null, serialKey, priority, this), mCallback);
+        }
+
         @Override
-        protected Result doInBackground(Object... params) {
+        public Result call() {
             // 1) open file
             InputStream stream = null;
             for (int i = 0, size = mFileTypeCandidates.size(); i < size && stream == null; ++i) {
@@ -169,7 +383,7 @@ public final class FileHelper {
             }
 
             // 2) process
-            Result result = mCallback.run(stream, params);
+            Result result = mCallback.run(stream, mParams);
 
             // 3) close and return
             if (stream != null) {
@@ -180,71 +394,6 @@ public final class FileHelper {
             }
             return result;
         }
-
-        @Override
-        protected void onPostExecute(Result result) {
-            mCallback.onResult(result);
-        }
-    }
-
-    private static class FileWriteAsyncTask<Result> extends AsyncTask<Object, Object, Result> {
-        private final String mFilePath;
-        private final boolean mLockFile;
-        private final FileAsyncOperationCallback<OutputStream, Result> mCallback;
-
-        public FileWriteAsyncTask(String filePath, boolean lockFile, FileAsyncOperationCallback<OutputStream, Result> callback) {
-            mFilePath = filePath;
-            mLockFile = lockFile;
-            mCallback = callback;
-        }
-
-        @Override
-        protected Result doInBackground(Object... params) {
-            // 1) open file
-            OutputStream stream = FileHelper.write(mFilePath, mLockFile);
-            if (stream == null) {
-                return null;
-            }
-
-            // 2) process
-            Result result = mCallback.run(stream, params);
-
-            // 3) close and return
-            try {
-                stream.close();
-            } catch (IOException e) {
-            }
-
-            return result;
-        }
-
-        @Override
-        protected void onPostExecute(Result result) {
-            mCallback.onResult(result);
-        }
-    }
-
-    private static class FileDeleteAsyncTask extends AsyncTask<Object, Object, Object> {
-        private final String mFilePath;
-        private final Runnable mCallback;
-
-        public FileDeleteAsyncTask(String filePath, Runnable callback) {
-            mFilePath = filePath;
-            mCallback = callback;
-        }
-
-        @Override
-        protected Object doInBackground(Object... params) {
-            new File(mFilePath).delete();
-            return null;
-        }
-
-        @Override
-        protected void onPostExecute(Object result) {
-            if (mCallback != null) {
-                mCallback.run();
-            }
-        }
     }
 
     // Path API
@@ -0,0 +1,447 @@
+package com.bestpractices.base.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Exclusive and shared file locks, across threads and processes.
+ * <ul>
+ * <li>Threads of this process wait on an in-process read/write lock of the
+ * path, so they never contend on the OS lock, and locks of different paths
+ * never wait for each other</li>
+ * <li>The OS lock of a path is taken once by the first holder in this
+ * process and shared by the following readers</li>
+ * <li>Waiting on the OS lock blocks in the kernel instead of polling, a
+ * timed wait runs it on a dedicated thread which is interrupted at the
+ * deadline</li>
+ * </ul>
+ * Locks are not reentrant, a thread holding a lock of a path must not lock
+ * the same path again unless both are shared. Paths are compared by their
+ * canonical form, so "d/x" and "d/./x" are the same lock.
+ * <p>
+ * The OS lock is a POSIX record lock owned by the process, and closing
+ * <em>any</em> descriptor of the file in this process, e.g. the stream of
+ * another reader or a {@link MappedFile}, silently drops it. While holding
+ * a lock, do the I/O through {@link Lock#channel()}, or open the file only
+ * once and close it after the lock is released.
+ */
+public final class FileLockHelper {
+    /**
+     * Locks of canonical paths held or waited for in this process, guarded
+     * by itself.
+     */
+    private static final HashMap<String, PathLock> sPathLocks = new HashMap<String, PathLock>();
+
+    private static final ExecutorService LOCK_EXECUTOR = new ThreadPoolExecutor(0, Integer.MAX_VALUE,
+            10, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "file-lock");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    // Lock
+
+    /**
+     * Block until the lock is acquired.
+     *
+     * @param shared true for a read lock, the file must exist then
+     * @throws IOException if the file can't be opened or locked
+     */
+    public static Lock lock(String path, boolean shared) throws IOException {
+        try {
+            return lock(path, shared, -1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while locking " + path);
+        }
+    }
+
+    /**
+     * @return null if not acquired within the timeout
+     * @throws IOException if the file can't be opened or locked
+     */
+    public static Lock lock(String path, boolean shared, long timeout, TimeUnit unit) throws IOException, InterruptedException {
+        return lock(path, shared, Math.max(0, unit.toNanos(timeout)));
+    }
+
+    /**
+     * @param timeoutNanos negative to wait forever
+     */
+    private static Lock lock(String path, boolean shared, long timeoutNanos) throws IOException, InterruptedException {
+        final long start = System.nanoTime();
+        final long deadline = start + timeoutNanos;
+        final String key = new File(path).getCanonicalPath();
+        final PathLock pathLock = obtainPathLock(key);
+
+        boolean locked = false;
+        try {
+            // 1) in-process
+            if (!pathLock.acquire(shared, timeoutNanos)) {
+                onWaited(start, true);
+                return null;
+            }
+
+            // 2) cross process
+            try {
+                if (!pathLock.acquireOsLock(path, shared, timeoutNanos, deadline)) {
+                    onWaited(start, true);
+                    return null;
+                }
+                locked = true;
+            } finally {
+                if (!locked) {
+                    pathLock.release(shared, false);
+                }
+            }
+        } finally {
+            if (!locked) {
+                recyclePathLock(key, pathLock);
+            }
+        }
+
+        onWaited(start, false);
+        return new Lock(path, key, shared, pathLock);
+    }
+
+    private static PathLock obtainPathLock(String key) {
+        synchronized (sPathLocks) {
+            PathLock pathLock = sPathLocks.get(key);
+            if (pathLock == null) {
+                pathLock = new PathLock();
+                sPathLocks.put(key, pathLock);
+            }
+            ++pathLock.mRefs;
+            return pathLock;
+        }
+    }
+
+    private static void recyclePathLock(String key, PathLock pathLock) {
+        synchronized (sPathLocks) {
+            if (--pathLock.mRefs == 0) {
+                sPathLocks.remove(key);
+            }
+        }
+    }
+
+    /**
+     * @return null if timeout
+     */
+    private static FileLock lockFile(RandomAccessFile file, final boolean shared, long timeoutNanos)
+            throws IOException, InterruptedException {
+        final FileChannel channel = file.getChannel();
+
+        // 1) not contended
+        FileLock lock = channel.tryLock(0, Long.MAX_VALUE, shared);
+
+        // 2) block in the kernel
+        if (lock == null) {
+            if (timeoutNanos < 0) {
+                lock = channel.lock(0, Long.MAX_VALUE, shared);
+            } else if (timeoutNanos > 0) {
+                lock = lockOnDedicatedThread(channel, shared, timeoutNanos);
+            }
+        }
+        return lock;
+    }
+
+    /**
+     * FileChannel.lock() has no timeout, run it on another thread and
+     * interrupt it at the deadline, which closes the channel and aborts the
+     * wait.
+     */
+    private static FileLock lockOnDedicatedThread(final FileChannel channel, final boolean shared, long timeoutNanos)
+            throws IOException, InterruptedException {
+        Future<FileLock> future = LOCK_EXECUTOR.submit(new Callable<FileLock>() {
+            @Override
+            public FileLock call() throws IOException {
+                return channel.lock(0, Long.MAX_VALUE, shared);
+            }
+        });
+        try {
+            return future.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            return null;
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private static void closeQuietly(RandomAccessFile file) {
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException e) {
+            }
+        }
+    }
+
+    /**
+     * A held lock, release it exactly once, from any thread.
+     */
+    public static final class Lock {
+        private final String mPath;
+        private final String mKey;
+        private final boolean mShared;
+        private final PathLock mPathLock;
+        private boolean mReleased;
+
+        Lock(String path, String key, boolean shared, PathLock pathLock) {
+            mPath = path;
+            mKey = key;
+            mShared = shared;
+            mPathLock = pathLock;
+        }
+
+        public String path() {
+            return mPath;
+        }
+
+        public boolean isShared() {
+            return mShared;
+        }
+
+        /**
+         * The channel the OS lock is held on, shared by all holders of the
+         * path in this process. Use positional reads and writes, and don't
+         * close it, it's closed when the last holder releases.
+         *
+         * @throws IllegalStateException if released
+         */
+        public FileChannel channel() {
+            synchronized (this) {
+                if (mReleased) {
+                    throw new IllegalStateException("released lock of " + mPath);
+                }
+            }
+            return mPathLock.channel();
+        }
+
+        public void release() {
+            synchronized (this) {
+                if (mReleased) {
+                    return;
+                }
+                mReleased = true;
+            }
+            mPathLock.release(mShared, true);
+            recyclePathLock(mKey, mPathLock);
+        }
+    }
+
+    /**
+     * The lock state of one path in this process, a read/write lock which,
+     * unlike ReentrantReadWriteLock, can be released by another thread than
+     * the one which acquired it, plus the OS lock shared by its holders.
+     * Waiting writers block new readers, so writers don't starve.
+     */
+    private static final class PathLock {
+        /**
+         * Threads holding or waiting for it, guarded by sPathLocks.
+         */
+        int mRefs;
+
+        // Guarded by this
+
+        private int mReaders;
+        private boolean mWriter;
+        private int mWaitingWriters;
+
+        /**
+         * Holders of the OS lock, and whether one is acquiring it without
+         * holding the monitor.
+         */
+        private int mOsHolders;
+        private boolean mOsAcquiring;
+        private RandomAccessFile mFile;
+        private FileLock mOsLock;
+
+        synchronized boolean acquire(boolean shared, long timeoutNanos) throws InterruptedException {
+            final long deadline = System.nanoTime() + timeoutNanos;
+            if (!shared) {
+                ++mWaitingWriters;
+            }
+            try {
+                while (shared ? (mWriter || mWaitingWriters > 0) : (mWriter || mReaders > 0)) {
+                    if (!await(timeoutNanos, deadline)) {
+                        return false;
+                    }
+                }
+            } finally {
+                if (!shared) {
+                    --mWaitingWriters;
+                    if (!mWriter && mWaitingWriters == 0) {
+                        // readers blocked by this writer may go on
+                        notifyAll();
+                    }
+                }
+            }
+            if (shared) {
+                ++mReaders;
+            } else {
+                mWriter = true;
+            }
+            return true;
+        }
+
+        /**
+         * Take or share the OS lock, the monitor is not held while blocking
+         * in the kernel, so timed waiters of other readers keep their
+         * deadline.
+         *
+         * @return false if timeout
+         */
+        boolean acquireOsLock(String path, boolean shared, long timeoutNanos, long deadline)
+                throws IOException, InterruptedException {
+            // 1) share the held one or wait for the one acquiring it
+            synchronized (this) {
+                while (mOsAcquiring) {
+                    if (!await(timeoutNanos, deadline)) {
+                        return false;
+                    }
+                }
+                if (mOsLock != null) {
+                    ++mOsHolders;
+                    return true;
+                }
+                mOsAcquiring = true;
+            }
+
+            // 2) acquire it
+            RandomAccessFile file = null;
+            FileLock lock = null;
+            try {
+                file = new RandomAccessFile(path, shared ? "r" : "rw");
+                lock = lockFile(file, shared, timeoutNanos < 0 ? -1 : Math.max(0, deadline - System.nanoTime()));
+            } finally {
+                if (lock == null) {
+                    closeQuietly(file);
+                }
+                synchronized (this) {
+                    mOsAcquiring = false;
+                    if (lock != null) {
+                        mFile = file;
+                        mOsLock = lock;
+                        ++mOsHolders;
+                    }
+                    notifyAll();
+                }
+            }
+            return lock != null;
+        }
+
+        synchronized FileChannel channel() {
+            return mFile.getChannel();
+        }
+
+        /**
+         * @param osLockHeld whether the caller is one of the OS lock holders
+         */
+        synchronized void release(boolean shared, boolean osLockHeld) {
+            if (osLockHeld && --mOsHolders == 0) {
+                try {
+                    mOsLock.release();
+                } catch (IOException e) {
+                }
+                closeQuietly(mFile);
+                mOsLock = null;
+                mFile = null;
+            }
+            if (shared) {
+                --mReaders;
+            } else {
+                mWriter = false;
+            }
+            notifyAll();
+        }
+
+        /**
+         * @return false if the deadline passed
+         */
+        private boolean await(long timeoutNanos, long deadline) throws InterruptedException {
+            if (timeoutNanos < 0) {
+                wait();
+                return true;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            return true;
+        }
+    }
+
+    // Metrics
+
+    private static final AtomicLong sLockCount = new AtomicLong();
+    private static final AtomicLong sTimeoutCount = new AtomicLong();
+    private static final AtomicLong sTotalWaitNanos = new AtomicLong();
+    private static final AtomicLong sMaxWaitNanos = new AtomicLong();
+
+    private static void onWaited(long start, boolean timeout) {
+        long wait = System.nanoTime() - start;
+        if (timeout) {
+            sTimeoutCount.incrementAndGet();
+        } else {
+            sLockCount.incrementAndGet();
+        }
+        sTotalWaitNanos.addAndGet(wait);
+        long max;
+        while (wait > (max = sMaxWaitNanos.get()) && !sMaxWaitNanos.compareAndSet(max, wait)) {
+        }
+    }
+
+    /**
+     * @return locks acquired since start or {@link #resetStats()}
+     */
+    public static long lockCount() {
+        return sLockCount.get();
+    }
+
+    public static long timeoutCount() {
+        return sTimeoutCount.get();
+    }
+
+    /**
+     * @return wait time of all lock calls, including timed out ones
+     */
+    public static long totalWaitNanos() {
+        return sTotalWaitNanos.get();
+    }
+
+    public static long maxWaitNanos() {
+        return sMaxWaitNanos.get();
+    }
+
+    public static void resetStats() {
+        sLockCount.set(0);
+        sTimeoutCount.set(0);
+        sTotalWaitNanos.set(0);
+        sMaxWaitNanos.set(0);
+    }
+}
@@ -0,0 +1,571 @@
+package com.bestpractices.base.util;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.bestpractices.base.Assert;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs I/O work on a bounded pool of worker threads:
+ * <ul>
+ * <li>Queued work is taken by priority lane, then in submit order</li>
+ * <li>Every submit returns an {@link IoFuture} which can be cancelled,
+ * waited for, or listened to</li>
+ * <li>Submits of the same serial key, e.g. a path, run one at a time in
+ * submit order, whatever their priority lanes are</li>
+ * <li>Submits with the same merge key while one is in flight share its run
+ * and result, unless something else was submitted on its serial key since,
+ * and a higher priority submit promotes the queued run</li>
+ * <li>Listeners are called through a {@link Delivery}, the main thread by
+ * default, tests can pass {@link #DIRECT} instead</li>
+ * </ul>
+ */
+public class IoScheduler {
+    // Priority lanes
+
+    /**
+     * The user is waiting for it.
+     */
+    public static final int PRIORITY_USER_VISIBLE = 0;
+
+    /**
+     * Likely needed soon.
+     */
+    public static final int PRIORITY_PREFETCH = 1;
+
+    /**
+     * Nobody is waiting for it.
+     */
+    public static final int PRIORITY_BACKGROUND = 2;
+
+    private static final int DEFAULT_THREAD_COUNT = 3;
+
+    // Delivery
+
+    /**
+     * Where listeners of {@link IoFuture} are called.
+     */
+    public static interface Delivery {
+        void deliver(Runnable runnable);
+    }
+
+    /**
+     * Call listeners on the worker thread which completes the future.
+     */
+    public static final Delivery DIRECT = new Delivery() {
+        @Override
+        public void deliver(Runnable runnable) {
+            runnable.run();
+        }
+    };
+
+    public static Delivery mainThread() {
+        final Handler handler = new Handler(Looper.getMainLooper());
+        return new Delivery() {
+            @Override
+            public void deliver(Runnable runnable) {
+                handler.post(runnable);
+            }
+        };
+    }
+
+    private static IoScheduler sDefault;
+
+    public static synchronized IoScheduler getDefault() {
+        if (sDefault == null) {
+            sDefault = new IoScheduler(DEFAULT_THREAD_COUNT, mainThread());
+        }
+        return sDefault;
+    }
+
+    /**
+     * Replace the scheduler used by {@link FileHelper}, e.g. with one of
+     * {@link #DIRECT} delivery in tests.
+     */
+    public static synchronized void setDefault(IoScheduler scheduler) {
+        sDefault = scheduler;
+    }
+
+    private final ThreadPoolExecutor mExecutor;
+    private final Delivery mDelivery;
+    private final AtomicLong mSequence = new AtomicLong();
+
+    /**
+     * In-flight runs by merge key, guarded by itself.
+     */
+    private final HashMap<String, Task<?>> mInFlight = new HashMap<String, Task<?>>();
+
+    /**
+     * Chains by serial key, guarded by mInFlight.
+     */
+    private final HashMap<String, SerialChain> mChains = new HashMap<String, SerialChain>();
+
+    public IoScheduler(int threadCount, Delivery delivery) {
+        Assert.r(threadCount > 0);
+        Assert.r(delivery != null);
+
+        mDelivery = delivery;
+        mExecutor = new ThreadPoolExecutor(threadCount, threadCount, 30, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<Runnable>(), new ThreadFactory() {
+            private final AtomicInteger mCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "io-" + mCount.incrementAndGet());
+                thread.setPriority(Thread.NORM_PRIORITY - 1);
+                return thread;
+            }
+        });
+        mExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    // Submit
+
+    public <T> IoFuture<T> submit(int priority, Callable<T> callable) {
+        return submit(null, null, priority, callable);
+    }
+
+    public <T> IoFuture<T> submit(String key, int priority, Callable<T> callable) {
+        return submit(key, null, priority, callable);
+    }
+
+    /**
+     * @param key       requests of equal keys are merged while in flight, so
+     *                  it must identify the work and its result, e.g.
+     *                  "read:" + path. Null to never merge.
+     * @param serialKey requests of equal serial keys run one at a time in
+     *                  submit order, e.g. the path they work on. A request
+     *                  is only merged into the last one of its serial key, so
+     *                  a read submitted after a write never shares the result
+     *                  of a read before the write. Null to run in any order.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> IoFuture<T> submit(String key, String serialKey, int priority, Callable<T> callable) {
+        Assert.r(callable != null);
+
+        synchronized (mInFlight) {
+            SerialChain chain = serialKey == null ? null : mChains.get(serialKey);
+
+            // 1) merge into the one in flight
+            if (key != null) {
+                Task<T> task = (Task<T>) mInFlight.get(key);
+                if (task != null && (chain == null ? task.mChain == null : chain.last() == task)) {
+                    IoFuture<T> future = task.subscribe();
+                    if (future != null) {
+                        promote(task, priority);
+                        return future;
+                    }
+                }
+            }
+
+            // 2) a new run
+            Task<T> task = new Task<T>(key, priority, mSequence.getAndIncrement(), callable);
+            IoFuture<T> future = task.subscribe();
+            if (key != null) {
+                mInFlight.put(key, task);
+            }
+            if (serialKey == null) {
+                mExecutor.execute(task);
+                return future;
+            }
+
+            // 3) after the ones of the same serial key
+            if (chain == null) {
+                chain = new SerialChain(serialKey);
+                mChains.put(serialKey, chain);
+            }
+            task.mChain = chain;
+            if (chain.mActive == null) {
+                chain.mActive = task;
+                mExecutor.execute(task);
+            } else {
+                chain.mWaiting.add(task);
+                // it can't start before the active one
+                promote(chain.mActive, priority);
+            }
+            return future;
+        }
+    }
+
+    /**
+     * Raise the priority of a run not started yet, guarded by mInFlight.
+     */
+    private void promote(Task<?> task, int priority) {
+        if (priority >= task.mPriority) {
+            return;
+        }
+        SerialChain chain = task.mChain;
+        if (chain != null && chain.mActive != task) {
+            // waiting in its chain, not in the executor
+            task.mPriority = priority;
+            promote(chain.mActive, priority);
+        } else if (mExecutor.remove(task)) {
+            task.mPriority = priority;
+            mExecutor.execute(task);
+        }
+    }
+
+    /**
+     * Stop accepting work, queued work is dropped.
+     */
+    public void shutdown() {
+        mExecutor.shutdownNow();
+    }
+
+    /**
+     * Stop merging into a run which is cancelled but still running.
+     */
+    private void onTaskCancelled(Task<?> task) {
+        synchronized (mInFlight) {
+            if (task.mKey != null && mInFlight.get(task.mKey) == task) {
+                mInFlight.remove(task.mKey);
+            }
+        }
+    }
+
+    private void onTaskFinished(Task<?> task) {
+        synchronized (mInFlight) {
+            if (task.mKey != null && mInFlight.get(task.mKey) == task) {
+                mInFlight.remove(task.mKey);
+            }
+
+            SerialChain chain = task.mChain;
+            if (chain == null) {
+                return;
+            }
+            if (chain.mActive == task) {
+                // start the next one which is not cancelled
+                chain.mActive = null;
+                Task<?> next;
+                while ((next = chain.mWaiting.poll()) != null) {
+                    if (!next.isDone()) {
+                        chain.mActive = next;
+                        mExecutor.execute(next);
+                        break;
+                    }
+                }
+            } else {
+                chain.mWaiting.remove(task);
+            }
+            if (chain.mActive == null && chain.mWaiting.isEmpty()) {
+                mChains.remove(chain.mKey);
+            }
+        }
+    }
+
+    /**
+     * Runs of one serial key, mActive is in the executor, the others wait for
+     * it in submit order. Guarded by mInFlight.
+     */
+    private static final class SerialChain {
+        final String mKey;
+        Task<?> mActive;
+        final ArrayDeque<Task<?>> mWaiting = new ArrayDeque<Task<?>>();
+
+        SerialChain(String key) {
+            mKey = key;
+        }
+
+        /**
+         * @return the last submitted run
+         */
+        Task<?> last() {
+            Task<?> last = mWaiting.peekLast();
+            return last != null ? last : mActive;
+        }
+    }
+
+    /**
+     * One run of a callable, shared by the futures of merged submits.
+     */
+    private final class Task<T> implements Runnable, Comparable<Task<?>> {
+        private static final int STATE_QUEUED = 0;
+        private static final int STATE_RUNNING = 1;
+        private static final int STATE_DONE = 2;
+
+        final String mKey;
+        volatile int mPriority;
+        final long mSequence;
+        private final Callable<T> mCallable;
+
+        /**
+         * Null if not serial, guarded by mInFlight.
+         */
+        SerialChain mChain;
+
+        /**
+         * Guarded by this.
+         */
+        private final ArrayList<IoFuture<T>> mFutures = new ArrayList<IoFuture<T>>(1);
+        private int mState = STATE_QUEUED;
+        private boolean mCancelled;
+        private Thread mRunner;
+
+        Task(String key, int priority, long sequence, Callable<T> callable) {
+            mKey = key;
+            mPriority = priority;
+            mSequence = sequence;
+            mCallable = callable;
+        }
+
+        Delivery getDelivery() {
+            return mDelivery;
+        }
+
+        synchronized boolean isDone() {
+            return mState == STATE_DONE;
+        }
+
+        /**
+         * @return null if the run is already done or cancelled
+         */
+        synchronized IoFuture<T> subscribe() {
+            if (mState == STATE_DONE || mCancelled) {
+                return null;
+            }
+            IoFuture<T> future = new IoFuture<T>(this);
+            mFutures.add(future);
+            return future;
+        }
+
+        /**
+         * Called when a future is cancelled, the run is cancelled once no
+         * future is interested.
+         */
+        void unsubscribe(IoFuture<T> future) {
+            boolean dequeue = false;
+            synchronized (this) {
+                mFutures.remove(future);
+                if (!mFutures.isEmpty() || mState == STATE_DONE || mCancelled) {
+                    return;
+                }
+                mCancelled = true;
+                if (mState == STATE_RUNNING) {
+                    mRunner.interrupt();
+                } else {
+                    mState = STATE_DONE;
+                    dequeue = true;
+                }
+            }
+            if (dequeue) {
+                mExecutor.remove(this);
+                onTaskFinished(this);
+            } else {
+                // the next submit of its key starts a fresh run
+                onTaskCancelled(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (mState != STATE_QUEUED) {
+                    return;
+                }
+                mState = STATE_RUNNING;
+                mRunner = Thread.currentThread();
+            }
+
+            T result = null;
+            Throwable error = null;
+            try {
+                result = mCallable.call();
+            } catch (Throwable e) {
+                error = e;
+            }
+
+            ArrayList<IoFuture<T>> futures;
+            synchronized (this) {
+                mState = STATE_DONE;
+                mRunner = null;
+                futures = new ArrayList<IoFuture<T>>(mFutures);
+                mFutures.clear();
+            }
+            // clear the interrupt of a cancelled run before the next task
+            Thread.interrupted();
+            onTaskFinished(this);
+
+            for (int i = 0, size = futures.size(); i < size; ++i) {
+                futures.get(i).complete(result, error);
+            }
+        }
+
+        @Override
+        public int compareTo(Task<?> another) {
+            if (mPriority != another.mPriority) {
+                return mPriority < another.mPriority ? -1 : 1;
+            }
+            return mSequence < another.mSequence ? -1 : (mSequence == another.mSequence ? 0 : 1);
+        }
+    }
+
+    // Future
+
+    public static interface Listener<T> {
+        /**
+         * @param error null if succeeded, a {@link CancellationException} if
+         *              cancelled
+         */
+        void onComplete(T result, Throwable error);
+    }
+
+    /**
+     * The result of one submit, a CompletableFuture-like handle, which is not
+     * available on older platforms.
+     */
+    public static final class IoFuture<T> implements java.util.concurrent.Future<T> {
+        private final Task<T> mTask;
+        private final Delivery mDelivery;
+
+        /**
+         * Guarded by this.
+         */
+        private boolean mDone;
+        private T mResult;
+        private Throwable mError;
+        private ArrayList<Listener<? super T>> mListeners;
+
+        IoFuture(Task<T> task) {
+            mTask = task;
+            mDelivery = task.getDelivery();
+        }
+
+        /**
+         * Cancel this handle, the run is cancelled or interrupted if no other
+         * merged handle waits for it. Listeners get a
+         * {@link CancellationException}.
+         *
+         * @return false if already completed
+         */
+        public boolean cancel() {
+            if (!complete(null, new CancellationException())) {
+                return false;
+            }
+            mTask.unsubscribe(this);
+            return true;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return cancel();
+        }
+
+        @Override
+        public synchronized boolean isCancelled() {
+            return mError instanceof CancellationException;
+        }
+
+        @Override
+        public synchronized boolean isDone() {
+            return mDone;
+        }
+
+        @Override
+        public synchronized T get() throws InterruptedException, ExecutionException {
+            while (!mDone) {
+                wait();
+            }
+            return report();
+        }
+
+        @Override
+        public synchronized T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            long remaining;
+            while (!mDone) {
+                if ((remaining = deadline - System.nanoTime()) <= 0) {
+                    throw new TimeoutException();
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+            return report();
+        }
+
+        /**
+         * @return the result if succeeded, otherwise valueIfAbsent
+         */
+        public synchronized T getNow(T valueIfAbsent) {
+            return mDone && mError == null ? mResult : valueIfAbsent;
+        }
+
+        private T report() throws ExecutionException {
+            if (mError instanceof CancellationException) {
+                throw (CancellationException) mError;
+            }
+            if (mError != null) {
+                throw new ExecutionException(mError);
+            }
+            return mResult;
+        }
+
+        /**
+         * Listen to the completion through the scheduler's delivery, called
+         * right away if already completed.
+         */
+        public IoFuture<T> whenComplete(final Listener<? super T> listener) {
+            Assert.r(listener != null);
+
+            synchronized (this) {
+                if (!mDone) {
+                    if (mListeners == null) {
+                        mListeners = new ArrayList<Listener<? super T>>(1);
+                    }
+                    mListeners.add(listener);
+                    return this;
+                }
+            }
+            notifyListener(listener);
+            return this;
+        }
+
+        boolean complete(T result, Throwable error) {
+            final ArrayList<Listener<? super T>> listeners;
+            synchronized (this) {
+                if (mDone) {
+                    return false;
+                }
+                mDone = true;
+                mResult = result;
+                mError = error;
+                listeners = mListeners;
+                mListeners = null;
+                notifyAll();
+            }
+            if (listeners != null) {
+                for (int i = 0, size = listeners.size(); i < size; ++i) {
+                    notifyListener(listeners.get(i));
+                }
+            }
+            return true;
+        }
+
+        private void notifyListener(final Listener<? super T> listener) {
+            mDelivery.deliver(new Runnable() {
+                @Override
+                public void run() {
+                    T result;
+                    Throwable error;
+                    synchronized (IoFuture.this) {
+                        result = mResult;
+                        error = mError;
+                    }
+                    listener.onComplete(result, error);
+                }
+            });
+        }
+    }
+}
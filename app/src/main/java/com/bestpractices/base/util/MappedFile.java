@@ -0,0 +1,307 @@
+package com.bestpractices.base.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+
+/**
+ * A holder of a memory mapped file, read without copying it into the Java
+ * heap.
+ * <ul>
+ * <li>Files up to 64MB are one {@link MappedByteBuffer}, larger ones are
+ * split into 64MB segments addressed by long offsets, so no large contiguous
+ * range of address space is needed on 32-bit devices</li>
+ * <li>Holders of the same path share one mapping, which is unmapped when the
+ * last of them releases it instead of waiting for GC. Nothing stays mapped
+ * without a holder</li>
+ * <li>Read only mappings are backed by the page cache, so other processes
+ * mapping the same file share the pages</li>
+ * </ul>
+ * Get one by {@link FileHelper#map(String, FileChannel.MapMode)} and
+ * {@link #release()} it, releasing it again does nothing. Buffers got from
+ * it, including slices and duplicates, must not be used after the release.
+ */
+public final class MappedFile {
+    private static final int SEGMENT_SHIFT = 26;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+    private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    /**
+     * Shared mappings with holders by mode and path, guarded by itself.
+     */
+    private static final HashMap<String, Mapping> sMappings = new HashMap<String, Mapping>();
+
+    private final Mapping mMapping;
+    private final long mLength;
+    private final MappedByteBuffer[] mSegments;
+    private boolean mReleased;
+
+    private MappedFile(Mapping mapping) {
+        mMapping = mapping;
+        mLength = mapping.mLength;
+        mSegments = mapping.mSegments;
+    }
+
+    // Open
+
+    /**
+     * {@link FileChannel.MapMode#PRIVATE} mappings are copy-on-write, so they
+     * are never shared. A shared mapping is reused as long as the length and
+     * modification time of the file are unchanged.
+     *
+     * @return null if failed
+     */
+    static MappedFile open(String path, FileChannel.MapMode mode) {
+        final File file = new File(path);
+        final String key = mode == FileChannel.MapMode.PRIVATE ? null : mode + ":" + file.getAbsolutePath();
+
+        // 1) shared one
+        if (key != null) {
+            synchronized (sMappings) {
+                Mapping shared = sMappings.get(key);
+                if (shared != null && shared.mLength == file.length()
+                        && shared.mLastModified == file.lastModified()) {
+                    ++shared.mRefs;
+                    return new MappedFile(shared);
+                }
+            }
+        }
+
+        // 2) map
+        Mapping mapping;
+        try {
+            mapping = map(key, file, mode);
+        } catch (Throwable e) {
+            return null;
+        }
+
+        // 3) share it, replacing a stale one which is unmapped by its holders
+        if (key != null) {
+            synchronized (sMappings) {
+                sMappings.put(key, mapping);
+            }
+        }
+        return new MappedFile(mapping);
+    }
+
+    private static Mapping map(String key, File file, FileChannel.MapMode mode) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, mode == FileChannel.MapMode.READ_ONLY ? "r" : "rw");
+        try {
+            // a mapping stays valid after its channel is closed
+            FileChannel channel = raf.getChannel();
+            long lastModified = file.lastModified();
+            long length = channel.size();
+            int count = (int) ((length + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+            MappedByteBuffer[] segments = new MappedByteBuffer[Math.max(1, count)];
+            try {
+                for (int i = 0; i < segments.length; ++i) {
+                    long position = (long) i << SEGMENT_SHIFT;
+                    segments[i] = channel.map(mode, position, Math.min(SEGMENT_SIZE, length - position));
+                }
+            } catch (IOException e) {
+                for (MappedByteBuffer segment : segments) {
+                    BufferHelper.release(segment);
+                }
+                throw e;
+            }
+            return new Mapping(key, length, lastModified, segments);
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * @return count of shared mappings with holders
+     */
+    static int sharedCount() {
+        synchronized (sMappings) {
+            return sMappings.size();
+        }
+    }
+
+    /**
+     * One mapping of a file, shared by its holders.
+     */
+    private static final class Mapping {
+        final String mKey;
+        final long mLength;
+        final long mLastModified;
+        final MappedByteBuffer[] mSegments;
+
+        /**
+         * Holders, guarded by sMappings.
+         */
+        int mRefs = 1;
+
+        Mapping(String key, long length, long lastModified, MappedByteBuffer[] segments) {
+            mKey = key;
+            mLength = length;
+            mLastModified = lastModified;
+            mSegments = segments;
+        }
+    }
+
+    // Release
+
+    /**
+     * Give up this holder, the file is unmapped when no holder is left.
+     * Releasing twice does nothing, so it never unmaps memory another holder
+     * still reads.
+     */
+    public void release() {
+        synchronized (this) {
+            if (mReleased) {
+                return;
+            }
+            mReleased = true;
+        }
+
+        Mapping mapping = mMapping;
+        synchronized (sMappings) {
+            if (--mapping.mRefs > 0) {
+                return;
+            }
+            if (mapping.mKey != null && sMappings.get(mapping.mKey) == mapping) {
+                sMappings.remove(mapping.mKey);
+            }
+        }
+        for (MappedByteBuffer segment : mapping.mSegments) {
+            BufferHelper.release(segment);
+        }
+    }
+
+    public synchronized boolean isReleased() {
+        return mReleased;
+    }
+
+    // Access
+
+    public long length() {
+        return mLength;
+    }
+
+    /**
+     * @return true if the whole file is one buffer, see {@link #buffer()}
+     */
+    public boolean isSingleSegment() {
+        return mSegments.length == 1;
+    }
+
+    /**
+     * @return a duplicate of the whole mapping, positioned at 0
+     * @throws IllegalStateException if the file is larger than one segment
+     */
+    public ByteBuffer buffer() {
+        checkNotReleased();
+        if (mSegments.length != 1) {
+            throw new IllegalStateException("file is " + mLength + " bytes, use segments");
+        }
+        return mSegments[0].duplicate();
+    }
+
+    public int segmentCount() {
+        return mSegments.length;
+    }
+
+    /**
+     * @return a duplicate of segment i, which starts at file offset
+     * i * {@link #segmentSize()}
+     */
+    public ByteBuffer segment(int i) {
+        checkNotReleased();
+        return mSegments[i].duplicate();
+    }
+
+    public static long segmentSize() {
+        return SEGMENT_SIZE;
+    }
+
+    /**
+     * Zero-copy view of [offset, offset + length), which must not cross a
+     * segment boundary.
+     */
+    public ByteBuffer slice(long offset, int length) {
+        checkRange(offset, length);
+        int segment = (int) (offset >>> SEGMENT_SHIFT);
+        int position = (int) (offset & SEGMENT_MASK);
+        if (position + (long) length > mSegments[segment].capacity()) {
+            throw new IllegalArgumentException("crosses a segment boundary: " + offset + ", " + length);
+        }
+        return BufferHelper.slice(mSegments[segment], position, length);
+    }
+
+    // Absolute reads
+
+    public byte getByte(long offset) {
+        checkRange(offset, 1);
+        return mSegments[(int) (offset >>> SEGMENT_SHIFT)].get((int) (offset & SEGMENT_MASK));
+    }
+
+    public int getInt(long offset, ByteOrder order) {
+        checkRange(offset, 4);
+        int position = (int) (offset & SEGMENT_MASK);
+        MappedByteBuffer segment = mSegments[(int) (offset >>> SEGMENT_SHIFT)];
+        if (position + 4 <= segment.capacity()) {
+            int value = segment.getInt(position);
+            return order == segment.order() ? value : Integer.reverseBytes(value);
+        }
+        return (int) getSpanning(offset, 4, order);
+    }
+
+    public long getLong(long offset, ByteOrder order) {
+        checkRange(offset, 8);
+        int position = (int) (offset & SEGMENT_MASK);
+        MappedByteBuffer segment = mSegments[(int) (offset >>> SEGMENT_SHIFT)];
+        if (position + 8 <= segment.capacity()) {
+            long value = segment.getLong(position);
+            return order == segment.order() ? value : Long.reverseBytes(value);
+        }
+        return getSpanning(offset, 8, order);
+    }
+
+    /**
+     * Copy into dst, which may cross segment boundaries.
+     */
+    public void get(long offset, byte[] dst, int dstOffset, int length) {
+        checkRange(offset, length);
+        while (length > 0) {
+            ByteBuffer segment = mSegments[(int) (offset >>> SEGMENT_SHIFT)].duplicate();
+            segment.position((int) (offset & SEGMENT_MASK));
+            int count = Math.min(length, segment.remaining());
+            segment.get(dst, dstOffset, count);
+            offset += count;
+            dstOffset += count;
+            length -= count;
+        }
+    }
+
+    private long getSpanning(long offset, int size, ByteOrder order) {
+        long value = 0;
+        for (int i = 0; i < size; ++i) {
+            long b = getByte(offset + i) & 0xff;
+            value |= order == ByteOrder.BIG_ENDIAN ? b << ((size - 1 - i) << 3) : b << (i << 3);
+        }
+        return value;
+    }
+
+    /**
+     * Best effort, it's not synchronized with a release on another thread.
+     */
+    private void checkNotReleased() {
+        if (mReleased) {
+            throw new IllegalStateException("released");
+        }
+    }
+
+    private void checkRange(long offset, long length) {
+        checkNotReleased();
+        if (offset < 0 || length < 0 || offset + length > mLength) {
+            throw new IndexOutOfBoundsException("Invalid range " + offset + ", " + length + ", length is " + mLength);
+        }
+    }
+}